@@ -0,0 +1,84 @@
+package jsimplecpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Pruebas de conformidad: ejecuta las demostraciones de SimpleCPU y
+ * JSimpleCPU con cada decodificador y configuración de memoria y compara
+ * la salida con la esperada (la de la implementación original).
+ *
+ * Uso: java jsimplecpu.Conformance
+ * Termina con código 1 si alguna salida no coincide.
+ */
+public class Conformance {
+
+    private static final String SIMPLE_EXPECTED = String.join("\n",
+            "Resultado de la suma: 15",
+            "Pila: [15]",
+            "Flags: [Zero: false, Carry: false, Halt: true]",
+            "PC: 6",
+            "Resultado de la resta: 10",
+            "Pila: [10]",
+            "Flags: [Zero: false, Carry: false, Halt: true]",
+            "PC: 6",
+            "Resultado de la multiplicación: 12",
+            "Pila: [12]",
+            "Flags: [Zero: false, Carry: false, Halt: true]",
+            "PC: 6",
+            "Resultado de la división: 0",
+            "Pila: [0]",
+            "Flags: [Zero: true, Carry: false, Halt: true]",
+            "PC: 6",
+            "");
+
+    private static final String JSIMPLE_EXPECTED = String.join("\n",
+            "Valor en la memoria en dirección 0: 30",
+            "Valor en la memoria en dirección 0: 35",
+            "Valor en la memoria en dirección 0: 65",
+            "Valor en la memoria en dirección 0: 100",
+            "Valor en la memoria en dirección 0: -5701622",
+            "");
+
+    public static void main(String[] args) {
+        int failures = 0;
+        failures += check("SimpleCPU / SimpleDecoder", SIMPLE_EXPECTED, () -> SimpleCPU.demo(false));
+        failures += check("SimpleCPU / StackCachingDecoder", SIMPLE_EXPECTED, () -> SimpleCPU.demo(true));
+        failures += check("JSimpleCPU / memoria de 64K", JSIMPLE_EXPECTED, () -> JSimpleCPU.demo(new JSimpleCPU()));
+        failures += check("JSimpleCPU / memoria dispersa desde 256", JSIMPLE_EXPECTED, () -> JSimpleCPU.demo(new JSimpleCPU(Memory.sparse(256))));
+        failures += check("JSimpleCPU / memoria sólo mapa", JSIMPLE_EXPECTED, () -> JSimpleCPU.demo(new JSimpleCPU(Memory.sparse(0))));
+        if (failures > 0) {
+            System.out.println(failures + " pruebas fallidas");
+            System.exit(1);
+        }
+        System.out.println("Todas las pruebas de conformidad pasaron");
+    }
+
+    // Ejecuta una demostración capturando su salida; devuelve 1 si no coincide
+    private static int check(String name, String expected, Runnable demo) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+            demo.run();
+        } catch (RuntimeException e) {
+            System.out.println("Excepción: " + e);
+        } finally {
+            System.setOut(out);
+        }
+        String actual = captured.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+        if (actual.equals(expected)) {
+            out.println("OK    " + name);
+            return 0;
+        }
+        out.println("FALLO " + name);
+        out.println("  esperado:\n" + expected);
+        out.println("  obtenido:\n" + actual);
+        return 1;
+    }
+}
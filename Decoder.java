@@ -0,0 +1,37 @@
+package jsimplecpu;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Decodificador de un ISA concreto. La Machine se encarga del bucle, la
+ * memoria, la pila, la traza, el perfil y el presupuesto de pasos; el
+ * decodificador sólo interpreta la instrucción apuntada por el PC.
+ */
+public interface Decoder {
+
+    // Ejecuta la instrucción en machine.pc y deja el PC en la siguiente
+    void step(Machine machine);
+
+    // Opcode de la instrucción en la dirección dada (para traza y perfil)
+    int opcodeAt(Machine machine, int address);
+
+    // Nombre del ISA
+    String name();
+
+    // Aviso de una escritura externa en memoria (Machine.writeMemory), para
+    // decodificadores que guardan una traducción del programa
+    default void memoryChanged(Machine machine, int address) {
+    }
+
+    // Aviso de que la memoria cambió por completo (reset o restore)
+    default void memoryReplaced(Machine machine) {
+    }
+
+    // Ejecuta hasta detenerse o agotar el presupuesto; un decodificador
+    // puede sustituirlo por un bucle propio más rápido
+    default void run(Machine machine) {
+        machine.interpret();
+    }
+}
@@ -0,0 +1,435 @@
+package jsimplecpu;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Servidor local (sólo loopback) que ejecuta programas de varios clientes
+ * sobre un conjunto acotado de CPUs reutilizadas.
+ *
+ * Protocolo de texto, una petición por línea y una respuesta por línea en
+ * el mismo orden, de modo que un cliente puede encadenar peticiones sin
+ * esperar respuestas sobre la misma conexión:
+ *
+ *   simple  PASOS PROGRAMA [MEMORIA]
+ *   jsimple PASOS PROGRAMA [MEMORIA]
+ *   stats
+ *
+ * PROGRAMA son palabras separadas por comas (decimal o 0x hex) cargadas
+ * desde la dirección 0 y MEMORIA pares dirección:valor separados por
+ * comas. Respuestas:
+ *
+ *   OK    steps=.. halted=.. pc=.. acc=.. x=.. y=.. zero=.. carry=.. overflow=.. stack=[..] mem=dir:valor,.. [out=".."]
+ *   LIMIT (mismos campos; se agotó el presupuesto de pasos)
+ *   ERR   mensaje
+ *   BUSY  (cola llena, la petición se descarta)
+ *
+ * out son los mensajes que imprimió el programa (división por cero,
+ * instrucción no válida), con los saltos de línea como \n y recortados a
+ * MAX_OUTPUT bytes; out_dropped cuenta los bytes descartados. Nunca van a
+ * la salida del servidor.
+ *
+ * stats se calcula en orden de tubería: incluye las peticiones anteriores
+ * de la misma conexión y ninguna posterior.
+ */
+public class ExecutionServer implements Closeable {
+
+    public static final String SIMPLE = "simple";
+    public static final String JSIMPLE = "jsimple";
+
+    private static final int PIPELINE_DEPTH = 64; // Respuestas pendientes por conexión
+    private static final int JSIMPLE_MEMORY = 0x10000; // Celdas directas de JSimpleCPU
+    private static final int MAX_OUTPUT = 1024; // Bytes de salida del programa por respuesta
+
+    private final int workers; // Hilos de ejecución (y CPUs de cada tipo)
+    private final int queueSize; // Trabajos en espera antes de descartar
+    private final int maxConnections;
+    private final long maxSteps; // Presupuesto máximo de pasos por trabajo
+    private final int memorySize; // Celdas de memoria de cada SimpleCPU
+    private final int maxStack; // Profundidad máxima de pila por trabajo
+
+    private final BlockingQueue<SimpleCPU> simplePool;
+    private final BlockingQueue<JSimpleCPU> jsimplePool;
+    private final Map<String, LatencyHistogram> latencies = new HashMap<>();
+    private final Map<String, AtomicLong> rejected = new HashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+    private ExecutorService connectionThreads;
+    private ServerSocket serverSocket;
+
+    public ExecutionServer(int workers, int queueSize, int maxConnections, long maxSteps,
+            int memorySize, int maxStack) {
+        this.workers = workers;
+        this.queueSize = queueSize;
+        this.maxConnections = maxConnections;
+        this.maxSteps = maxSteps;
+        this.memorySize = memorySize;
+        this.maxStack = maxStack;
+        simplePool = new ArrayBlockingQueue<>(workers);
+        jsimplePool = new ArrayBlockingQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            SimpleCPU simple = new SimpleCPU(memorySize, true);
+            simple.getMachine().setStackLimit(maxStack);
+            simple.getMachine().setConsole(new JobConsole());
+            simplePool.add(simple);
+            JSimpleCPU jsimple = new JSimpleCPU(Memory.sparse(JSIMPLE_MEMORY));
+            jsimple.getMachine().setStackLimit(maxStack);
+            jsimple.getMachine().setConsole(new JobConsole());
+            jsimplePool.add(jsimple);
+        }
+        for (String endpoint : new String[]{SIMPLE, JSIMPLE}) {
+            latencies.put(endpoint, new LatencyHistogram());
+            rejected.put(endpoint, new AtomicLong());
+        }
+    }
+
+    public ExecutionServer() {
+        this(Runtime.getRuntime().availableProcessors(), 256, 64, 1_000_000, 256, 1024);
+    }
+
+    // Abre el socket en loopback (port 0 elige uno libre) y empieza a aceptar conexiones
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+        connectionThreads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "jsimplecpu-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread acceptor = new Thread(this::acceptLoop, "jsimplecpu-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        connectionThreads.shutdownNow();
+    }
+
+    public LatencyHistogram getLatency(String endpoint) {
+        return latencies.get(endpoint);
+    }
+
+    public long getRejected(String endpoint) {
+        return rejected.get(endpoint).get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (connections.incrementAndGet() > maxConnections) {
+                    connections.decrementAndGet();
+                    socket.getOutputStream().write("BUSY\n".getBytes(StandardCharsets.UTF_8));
+                    socket.close();
+                    continue;
+                }
+                connectionThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Socket cerrado
+            }
+        }
+    }
+
+    // Un hilo lee y encola peticiones; otro escribe las respuestas en orden.
+    // Si el cliente no lee, la cola de pendientes se llena y se deja de leer.
+    // Si el escritor falla, cierra el socket y el lector deja de esperar.
+    private void serve(Socket socket) {
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        Future<String> end = CompletableFuture.completedFuture(null);
+        Future<?> writer = null;
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            writer = connectionThreads.submit(() -> {
+                try {
+                    while (true) {
+                        Future<String> response = pending.take();
+                        if (response == end) {
+                            break;
+                        }
+                        if (response instanceof StatsTask) {
+                            ((StatsTask) response).run();
+                        }
+                        out.write(response.get());
+                        out.write('\n');
+                        if (pending.isEmpty()) {
+                            out.flush();
+                        }
+                    }
+                    out.flush();
+                } catch (IOException | InterruptedException | ExecutionException e) {
+                    // Conexión cerrada por el cliente o servidor detenido
+                    closeQuietly(s);
+                }
+                return null;
+            });
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank() && !handOff(pending, submit(line.trim(), System.nanoTime()), writer)) {
+                    break;
+                }
+            }
+            if (handOff(pending, end, writer)) {
+                writer.get();
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            // Conexión cerrada
+        } finally {
+            if (writer != null) {
+                writer.cancel(true);
+            }
+            connections.decrementAndGet();
+        }
+    }
+
+    // Entrega una respuesta al escritor, esperando mientras la cola esté
+    // llena; devuelve false si el escritor ya terminó
+    private static boolean handOff(BlockingQueue<Future<String>> pending, Future<String> response,
+            Future<?> writer) throws InterruptedException {
+        while (!pending.offer(response, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ya estaba cerrado
+        }
+    }
+
+    private Future<String> submit(String line, long received) {
+        String[] parts = line.split("\\s+");
+        String endpoint = parts[0];
+        if (endpoint.equals("stats")) {
+            return new StatsTask(this::stats);
+        }
+        if (!latencies.containsKey(endpoint)) {
+            return CompletableFuture.completedFuture("ERR endpoint desconocido: " + endpoint);
+        }
+        try {
+            return executor.submit(() -> {
+                try {
+                    return execute(endpoint, parts);
+                } catch (RuntimeException e) {
+                    return "ERR " + e;
+                } finally {
+                    latencies.get(endpoint).record(System.nanoTime() - received);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.get(endpoint).incrementAndGet();
+            return CompletableFuture.completedFuture("BUSY");
+        }
+    }
+
+    // Ejecuta una petición; se llama desde un hilo del executor
+    String execute(String endpoint, String[] parts) throws InterruptedException {
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("se esperaba: " + endpoint + " PASOS PROGRAMA [MEMORIA]");
+        }
+        long steps = Math.min(Long.parseLong(parts[1]), maxSteps);
+        int[] program = parseWords(parts[2]);
+        Map<Integer, Integer> memory = parts.length == 4 ? parseMemory(parts[3]) : new HashMap<>();
+
+        if (endpoint.equals(SIMPLE)) {
+            checkAddresses(program, memory, memorySize);
+            SimpleCPU cpu = simplePool.take();
+            try {
+                cpu.reset();
+                for (int i = 0; i < program.length; i++) {
+                    cpu.loadMemory(i, program[i]);
+                }
+                for (Map.Entry<Integer, Integer> entry : memory.entrySet()) {
+                    cpu.loadMemory(entry.getKey(), entry.getValue());
+                }
+                return runJob(cpu.getMachine(), steps, cpu::run);
+            } finally {
+                simplePool.put(cpu);
+            }
+        } else {
+            // Los operandos de 16 bits sólo alcanzan estas celdas directas; limitando
+            // la imagen inicial a ellas, la memoria del trabajo queda acotada
+            checkAddresses(program, memory, JSIMPLE_MEMORY);
+            JSimpleCPU cpu = jsimplePool.take();
+            try {
+                cpu.loadProgram(program, memory);
+                return runJob(cpu.getMachine(), steps, cpu::run);
+            } finally {
+                jsimplePool.put(cpu);
+            }
+        }
+    }
+
+    private static String runJob(Machine machine, long steps, Runnable run) {
+        JobConsole console = (JobConsole) machine.getConsole();
+        console.clear();
+        machine.setStepBudget(steps);
+        try {
+            run.run();
+        } catch (RuntimeException e) {
+            return "ERR " + e + " steps=" + machine.getInstructionCount() + " pc=" + machine.getPc()
+                    + console.describe();
+        }
+        return (machine.isBudgetExhausted() ? "LIMIT " : "OK ") + machine.describe() + console.describe();
+    }
+
+    // Salida del programa de una CPU del conjunto: guarda los primeros
+    // MAX_OUTPUT bytes de cada trabajo y cuenta el resto
+    private static final class JobConsole extends PrintStream {
+
+        JobConsole() {
+            super(new Capture(), false, StandardCharsets.UTF_8);
+        }
+
+        private Capture capture() {
+            return (Capture) out;
+        }
+
+        void clear() {
+            capture().count = 0;
+            capture().dropped = 0;
+        }
+
+        // Campos out y out_dropped de la respuesta (vacío si no hubo salida)
+        String describe() {
+            Capture capture = capture();
+            if (capture.count == 0) {
+                return "";
+            }
+            String text = new String(capture.data, 0, capture.count, StandardCharsets.UTF_8)
+                    .replace("\\", "\\\\").replace("\"", "\\\"")
+                    .replace("\r", "").replace("\n", "\\n");
+            return " out=\"" + text + "\"" + (capture.dropped == 0 ? "" : " out_dropped=" + capture.dropped);
+        }
+    }
+
+    private static final class Capture extends OutputStream {
+
+        final byte[] data = new byte[MAX_OUTPUT];
+        int count = 0;
+        long dropped = 0;
+
+        @Override
+        public void write(int b) {
+            if (count < data.length) {
+                data[count++] = (byte) b;
+            } else {
+                dropped++;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            int kept = Math.min(length, data.length - count);
+            System.arraycopy(bytes, offset, data, count, kept);
+            count += kept;
+            dropped += length - kept;
+        }
+    }
+
+    private static void checkAddresses(int[] program, Map<Integer, Integer> memory, int limit) {
+        if (program.length > limit) {
+            throw new IllegalArgumentException("programa demasiado grande: " + program.length);
+        }
+        for (int address : memory.keySet()) {
+            if (address < 0 || address >= limit) {
+                throw new IllegalArgumentException("dirección fuera de la memoria: " + address);
+            }
+        }
+    }
+
+    private static int[] parseWords(String text) {
+        String[] words = text.split(",");
+        int[] values = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            values[i] = Integer.decode(words[i]);
+        }
+        return values;
+    }
+
+    private static Map<Integer, Integer> parseMemory(String text) {
+        Map<Integer, Integer> memory = new HashMap<>();
+        for (String pair : text.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("se esperaba dirección:valor: " + pair);
+            }
+            memory.put(Integer.decode(pair.substring(0, colon)), Integer.decode(pair.substring(colon + 1)));
+        }
+        return memory;
+    }
+
+    private String stats() {
+        StringBuilder sb = new StringBuilder("STATS");
+        for (String endpoint : new String[]{SIMPLE, JSIMPLE}) {
+            LatencyHistogram.Snapshot histogram = latencies.get(endpoint).snapshot();
+            sb.append(' ').append(endpoint)
+                    .append(" count=").append(histogram.getCount())
+                    .append(" p50=").append(histogram.percentile(50) / 1000).append("us")
+                    .append(" p99=").append(histogram.percentile(99) / 1000).append("us")
+                    .append(" rejected=").append(rejected.get(endpoint).get());
+        }
+        return sb.toString();
+    }
+
+    // Se ejecuta en el hilo escritor al llegar su turno, tras escribir las
+    // respuestas anteriores de la conexión
+    private static final class StatsTask extends FutureTask<String> {
+
+        StatsTask(Callable<String> stats) {
+            super(stats);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        ExecutionServer server = new ExecutionServer();
+        server.start(port);
+        System.out.println("Servidor escuchando en 127.0.0.1:" + server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,678 @@
+package jsimplecpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Fuzzing diferencial: genera programas válidos aleatorios para los dos
+ * ISAs y los ejecuta a la vez en el intérprete de referencia y en cada
+ * motor o memoria alternativos, comparando el estado completo (incluidos
+ * los mensajes que imprime el programa) cada CHUNK instrucciones. La
+ * mitad de los programas se ejecuta con un límite de pila pequeño (1 a
+ * 8) para ejercitar los desbordamientos. Ante la primera divergencia
+ * busca la instrucción exacta en que aparece, minimiza el programa y lo
+ * informa.
+ *
+ * StackCachingDecoder se compara dos veces: sólo con run() y avanzando
+ * por tramos que alternan step(), run() y run() con un Profiler (el
+ * intérprete normal), para cubrir también la traducción compartida entre
+ * esos caminos.
+ *
+ * Uso: java jsimplecpu.Fuzzer [segundos] [hilos] [semilla]
+ *      java jsimplecpu.Fuzzer repro ISA MEMORIA PILA PASOS PALABRAS
+ *
+ * La segunda forma vuelve a ejecutar en todos los motores del ISA el
+ * reproductor que imprime una divergencia (tamaño de memoria, límite de
+ * pila, instrucciones y programa) y muestra el estado de cada uno.
+ * Termina con código 1 si encuentra alguna divergencia.
+ */
+public class Fuzzer {
+
+    private static final int CHUNK = 256; // Instrucciones entre comparaciones
+    private static final long MAX_STEPS = 2_000; // Presupuesto por programa
+    private static final int SIMPLE_MEMORY = 64; // Memoria de SimpleCPU
+    private static final int JSIMPLE_WINDOW = 512; // Direcciones que puede tocar un programa de JSimpleCPU
+    private static final int MAX_STACK = 4096; // Límite de pila de la otra mitad de los programas
+
+    // Un motor concreto: nombre y cómo construir su máquina
+    private static final class Engine {
+
+        final String name;
+        final IntFunction<Machine> factory; // Recibe el tamaño de memoria
+
+        Engine(String name, IntFunction<Machine> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        Machine create(int memorySize) {
+            Machine machine = factory.apply(memorySize);
+            machine.setConsole(new Console());
+            return machine;
+        }
+    }
+
+    // Mensajes impresos por el programa en una máquina
+    private static final class Console extends PrintStream {
+
+        Console() {
+            super(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        private ByteArrayOutputStream buffer() {
+            return (ByteArrayOutputStream) out;
+        }
+
+        void clear() {
+            buffer().reset();
+        }
+
+        boolean sameAs(Console other) {
+            return buffer().size() == other.buffer().size()
+                    && (buffer().size() == 0 || Arrays.equals(buffer().toByteArray(), other.buffer().toByteArray()));
+        }
+
+        String text() {
+            return buffer().toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Console console(Machine machine) {
+        return (Console) machine.getConsole();
+    }
+
+    // Máquina cuyo run() avanza por tramos cortos alternando step(), run()
+    // y run() con un Profiler instalado (intérprete normal), para comparar
+    // también esos caminos con la referencia. Los tramos dependen sólo del
+    // contador de instrucciones, así que la ejecución es reproducible
+    private static final class SlicedMachine extends Machine {
+
+        private final Profiler profiler = new Profiler();
+
+        SlicedMachine(Memory memory, Decoder decoder) {
+            super(memory, decoder);
+        }
+
+        @Override
+        public void run() {
+            long budget = getStepBudget();
+            try {
+                while (canStep()) {
+                    long count = getInstructionCount();
+                    long mix = (count + 1) * 0x9E3779B97F4A7C15L;
+                    long end = Math.min(budget, count + 1 + ((mix >>> 40) & 15));
+                    int kind = (int) (mix >>> 62);
+                    if (kind == 0) {
+                        while (getInstructionCount() < end && step()) {
+                            // Una instrucción por llamada
+                        }
+                        continue;
+                    }
+                    setStepBudget(end);
+                    if (kind == 1) {
+                        setTracer(profiler);
+                    }
+                    try {
+                        super.run();
+                    } finally {
+                        setTracer(null);
+                        setStepBudget(budget);
+                    }
+                }
+            } finally {
+                setStepBudget(budget);
+            }
+        }
+    }
+
+    // Un ISA: generador de programas, motor de referencia y alternativos
+    private abstract static class Isa {
+
+        final String name;
+        final int window; // Tamaño de la imagen y de la memoria comparada
+        final Engine reference;
+        final List<Engine> alternatives;
+
+        Isa(String name, int window, Engine reference, List<Engine> alternatives) {
+            this.name = name;
+            this.window = window;
+            this.reference = reference;
+            this.alternatives = alternatives;
+        }
+
+        abstract int[] generate(Random random);
+
+        // Referencia seguida de los motores alternativos
+        Machine[] createEngines(int memorySize) {
+            Machine[] engines = new Machine[alternatives.size() + 1];
+            engines[0] = reference.create(memorySize);
+            for (int j = 0; j < alternatives.size(); j++) {
+                engines[j + 1] = alternatives.get(j).create(memorySize);
+            }
+            return engines;
+        }
+    }
+
+    private static final Isa SIMPLE = new Isa("simple", SIMPLE_MEMORY,
+            new Engine("SimpleDecoder", size -> new Machine(Memory.strict(size), new SimpleDecoder())),
+            List.of(new Engine("StackCachingDecoder", size -> new Machine(Memory.strict(size), new StackCachingDecoder())),
+                    new Engine("StackCachingDecoder por step()/run()/Profiler",
+                            size -> new SlicedMachine(Memory.strict(size), new StackCachingDecoder())))) {
+
+        @Override
+        int[] generate(Random random) {
+            int[] image = new int[window];
+            // La mitad de los programas vuelve al principio y agota el presupuesto
+            int end = random.nextBoolean() ? window - 2 : window;
+            int depth = 0; // Profundidad de pila aproximada (sin seguir los saltos)
+            int i = 0;
+            while (i < end) {
+                if (random.nextInt(6) == 0 && i + 4 < end) {
+                    // Secuencia que StackCachingDecoder fusiona
+                    int[] ops = {SimpleDecoder.ADD, SimpleDecoder.SUB, SimpleDecoder.MULT, SimpleDecoder.DIV};
+                    image[i++] = SimpleDecoder.PUSH;
+                    image[i++] = smallValue(random);
+                    image[i++] = SimpleDecoder.PUSH;
+                    image[i++] = smallValue(random);
+                    image[i++] = ops[random.nextInt(ops.length)];
+                    depth++;
+                    continue;
+                }
+                int opcode = SimpleDecoder.MOV + random.nextInt(SimpleDecoder.GO);
+                // Evitar vaciar la pila, que acabaría casi todos los programas
+                int needed = opcode == SimpleDecoder.ADD || opcode == SimpleDecoder.SUB
+                        || opcode == SimpleDecoder.MULT || opcode == SimpleDecoder.DIV ? 2
+                        : opcode == SimpleDecoder.POP || opcode == SimpleDecoder.INC
+                        || opcode == SimpleDecoder.DEC || opcode == SimpleDecoder.LOOP ? 1 : 0;
+                if (depth < needed) {
+                    opcode = SimpleDecoder.PUSH;
+                }
+                image[i++] = opcode;
+                switch (opcode) {
+                    case SimpleDecoder.MOV:
+                        i = put(image, i, random.nextInt(window));
+                        i = put(image, i, random.nextInt(window));
+                        break;
+                    case SimpleDecoder.PUSH:
+                        i = put(image, i, smallValue(random));
+                        depth++;
+                        break;
+                    case SimpleDecoder.POP:
+                        i = put(image, i, smallValue(random));
+                        depth--;
+                        break;
+                    case SimpleDecoder.POPA:
+                    case SimpleDecoder.DEL:
+                        depth = 0;
+                        break;
+                    case SimpleDecoder.ADD:
+                    case SimpleDecoder.SUB:
+                    case SimpleDecoder.MULT:
+                    case SimpleDecoder.DIV:
+                        depth--;
+                        break;
+                    case SimpleDecoder.LOOP:
+                        i = put(image, i, random.nextInt(window));
+                        depth--;
+                        break;
+                    case SimpleDecoder.GO:
+                        i = put(image, i, random.nextInt(window));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (end < window) {
+                image[end] = SimpleDecoder.GO;
+                image[end + 1] = 0;
+            }
+            return image;
+        }
+    };
+
+    private static final Isa JSIMPLE = new Isa("jsimple", JSIMPLE_WINDOW,
+            new Engine("JSimpleDecoder", size -> new Machine(Memory.sparse(0x10000), new JSimpleDecoder())),
+            List.of(new Engine("JSimpleDecoder + memoria dispersa desde 256", size -> new Machine(Memory.sparse(256), new JSimpleDecoder())),
+                    new Engine("JSimpleDecoder + memoria sólo mapa", size -> new Machine(Memory.sparse(0), new JSimpleDecoder())))) {
+
+        private final byte[] opcodes = jsimpleOpcodes();
+        private final byte[] branches = {JSimpleCPU.JMP, JSimpleCPU.JZ, JSimpleCPU.JSR, JSimpleCPU.BCC, JSimpleCPU.BCS,
+            JSimpleCPU.BEQ, JSimpleCPU.BMI, JSimpleCPU.BNE, JSimpleCPU.BPL, JSimpleCPU.BVC, JSimpleCPU.BVS};
+
+        @Override
+        int[] generate(Random random) {
+            int[] image = new int[window];
+            int length = 8 + random.nextInt(40);
+            int depth = 0; // Profundidad de pila aproximada (sin seguir los saltos)
+            for (int i = 0; i < length - 1; i++) {
+                byte opcode = opcodes[random.nextInt(opcodes.length)];
+                int effect = stackEffect(opcode);
+                if (depth + effect < 0) {
+                    // Evitar vaciar la pila, que acabaría casi todos los programas
+                    opcode = JSimpleCPU.PHA;
+                    effect = 1;
+                }
+                depth = opcode == JSimpleCPU.TXS ? 0 : depth + effect;
+                int operand = isBranch(opcode) ? random.nextInt(length) : random.nextInt(window);
+                image[i] = (opcode << 16) | operand;
+            }
+            // La mitad de los programas vuelve al principio y agota el presupuesto
+            image[length - 1] = random.nextBoolean() ? JSimpleCPU.HALT << 16 : JSimpleCPU.JMP << 16;
+            // Datos, incluida la dirección 0xFF que usan DEX/DEY
+            for (int i = 0; i < 24; i++) {
+                image[length + random.nextInt(window - length)] = random.nextInt(300) - 8;
+            }
+            return image;
+        }
+
+        private int stackEffect(byte opcode) {
+            switch (opcode) {
+                case JSimpleCPU.PUSH:
+                case JSimpleCPU.PHA:
+                case JSimpleCPU.PHP:
+                case JSimpleCPU.STX:
+                case JSimpleCPU.STY:
+                case JSimpleCPU.JSR:
+                    return 1;
+                case JSimpleCPU.POP:
+                case JSimpleCPU.DEL:
+                case JSimpleCPU.PLA:
+                case JSimpleCPU.PLP:
+                case JSimpleCPU.RTS:
+                    return -1;
+                default:
+                    return 0;
+            }
+        }
+
+        private boolean isBranch(byte opcode) {
+            for (byte branch : branches) {
+                if (branch == opcode) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private static final Isa[] ISAS = {SIMPLE, JSIMPLE};
+
+    // Divergencia encontrada, ya minimizada
+    private static final class Divergence {
+
+        final Isa isa;
+        final Engine engine;
+        final long seed;
+        final int stackLimit;
+        final long instruction;
+        final int[] image;
+        final String expected;
+        final String actual;
+
+        Divergence(Isa isa, Engine engine, long seed, int stackLimit, long instruction, int[] image,
+                String expected, String actual) {
+            this.isa = isa;
+            this.engine = engine;
+            this.seed = seed;
+            this.stackLimit = stackLimit;
+            this.instruction = instruction;
+            this.image = image;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        void print(PrintStream out) {
+            int length = image.length;
+            while (length > 1 && image[length - 1] == 0) {
+                length--;
+            }
+            StringBuilder words = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                words.append(i == 0 ? "" : ",").append(image[i]);
+            }
+            out.println("DIVERGENCIA: " + engine.name + " frente a " + isa.reference.name + " (semilla " + seed + ")");
+            out.println("  primera instrucción divergente: #" + instruction + ", límite de pila " + stackLimit);
+            out.println("  referencia:  " + expected);
+            out.println("  alternativa: " + actual);
+            out.println("  reproducir:  java jsimplecpu.Fuzzer repro " + isa.name + " " + image.length
+                    + " " + stackLimit + " " + instruction + " " + words);
+        }
+    }
+
+    // Máquinas de un hilo, reutilizadas entre programas
+    private static final class Worker {
+
+        final Machine[][] machines = new Machine[ISAS.length][];
+        final String[] faults = new String[maxEngines()]; // Excepción de cada motor en lockstep()
+        long chunkEnd; // Fin del bloque en que lockstep() encontró la divergencia
+        int stackLimit; // Límite de pila del programa en curso
+
+        Worker() {
+            for (int i = 0; i < ISAS.length; i++) {
+                machines[i] = ISAS[i].createEngines(ISAS[i].window);
+            }
+        }
+
+        // Ejecuta un programa en todos los motores; devuelve la divergencia o null
+        Divergence check(int isaIndex, long seed, LongAdder executed) {
+            Isa isa = ISAS[isaIndex];
+            Random random = new Random(seed);
+            stackLimit = random.nextBoolean() ? 1 + random.nextInt(8) : MAX_STACK;
+            int[] image = isa.generate(random);
+            Machine[] engines = machines[isaIndex];
+            int diverging = lockstep(engines, image, MAX_STEPS);
+            executed.add(engines[0].getInstructionCount());
+            if (diverging < 0) {
+                return null;
+            }
+            Machine[] pair = {engines[0], engines[diverging]};
+            return minimize(isa, isa.alternatives.get(diverging - 1), seed, pair, image, chunkEnd);
+        }
+
+        // Ejecuta todos los motores por bloques comparándolos con el
+        // primero (la referencia) en las image.length primeras celdas.
+        // Devuelve el índice del primer motor que difiere, dejando en
+        // chunkEnd el fin del bloque, o -1 si coinciden
+        int lockstep(Machine[] engines, int[] image, long budget) {
+            for (int j = 0; j < engines.length; j++) {
+                load(engines[j], image, stackLimit);
+                faults[j] = null;
+            }
+            Machine reference = engines[0];
+            for (long t = Math.min(CHUNK, budget); ; t = Math.min(t + CHUNK, budget)) {
+                for (int j = 0; j < engines.length; j++) {
+                    faults[j] = advance(engines[j], t, faults[j]);
+                }
+                for (int j = 1; j < engines.length; j++) {
+                    if (!Objects.equals(faults[0], faults[j]) || !sameState(reference, engines[j], image.length)) {
+                        chunkEnd = t;
+                        return j;
+                    }
+                }
+                if (t >= budget || faults[0] != null || !reference.canStep()) {
+                    return -1;
+                }
+            }
+        }
+
+        // Estado de ambos motores tras exactamente n instrucciones de una sola ejecución
+        boolean divergesAt(Machine[] pair, int[] image, long n) {
+            load(pair[0], image, stackLimit);
+            load(pair[1], image, stackLimit);
+            String referenceFault = advance(pair[0], n, null);
+            String alternativeFault = advance(pair[1], n, null);
+            return !Objects.equals(referenceFault, alternativeFault) || !sameState(pair[0], pair[1], image.length);
+        }
+
+        // Primera instrucción divergente hasta chunkEnd (se busca primero en el último bloque)
+        long firstInstruction(Machine[] pair, int[] image, long end) {
+            for (long n = Math.max(1, end - CHUNK + 1); n <= end; n++) {
+                if (divergesAt(pair, image, n)) {
+                    return n;
+                }
+            }
+            for (long n = 1; n <= end; n++) {
+                if (divergesAt(pair, image, n)) {
+                    return n;
+                }
+            }
+            return end; // Sólo diverge ejecutando por bloques
+        }
+
+        // Pone a cero palabras de la imagen mientras siga divergiendo
+        Divergence minimize(Isa isa, Engine engine, long seed, Machine[] pair, int[] original, long end) {
+            int[] image = original.clone();
+            long n = firstInstruction(pair, image, end);
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < image.length; i++) {
+                    if (image[i] == 0) {
+                        continue;
+                    }
+                    int saved = image[i];
+                    image[i] = 0;
+                    if (lockstep(pair, image, n) >= 0) {
+                        n = firstInstruction(pair, image, chunkEnd);
+                        changed = true;
+                    } else {
+                        image[i] = saved;
+                    }
+                }
+            }
+            lockstep(pair, image, n);
+            return new Divergence(isa, engine, seed, stackLimit, n, image,
+                    describe(pair[0], faults[0], image.length), describe(pair[1], faults[1], image.length));
+        }
+    }
+
+    // Motores del ISA que más tiene (referencia incluida)
+    private static int maxEngines() {
+        int max = 0;
+        for (Isa isa : ISAS) {
+            max = Math.max(max, isa.alternatives.size() + 1);
+        }
+        return max;
+    }
+
+    private static void load(Machine machine, int[] image, int stackLimit) {
+        machine.reset();
+        console(machine).clear();
+        machine.setStackLimit(stackLimit);
+        for (int i = 0; i < image.length; i++) {
+            if (image[i] != 0) {
+                machine.writeMemory(i, image[i]);
+            }
+        }
+    }
+
+    // Ejecuta hasta el instante t; devuelve la excepción del programa, si la hubo
+    private static String advance(Machine machine, long t, String fault) {
+        if (fault != null) {
+            return fault;
+        }
+        machine.setStepBudget(t);
+        try {
+            machine.run();
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+        return null;
+    }
+
+    private static boolean sameState(Machine a, Machine b, int window) {
+        if (a.getInstructionCount() != b.getInstructionCount()
+                || a.getPc() != b.getPc()
+                || a.getAccumulator() != b.getAccumulator()
+                || a.getXRegister() != b.getXRegister()
+                || a.getYRegister() != b.getYRegister()
+                || a.isZeroFlag() != b.isZeroFlag()
+                || a.isCarryFlag() != b.isCarryFlag()
+                || a.isOverflowFlag() != b.isOverflowFlag()
+                || a.isHalted() != b.isHalted()
+                || !console(a).sameAs(console(b))) {
+            return false;
+        }
+        IntStack stackA = a.getStack();
+        IntStack stackB = b.getStack();
+        if (stackA.size() != stackB.size()) {
+            return false;
+        }
+        for (int i = 0; i < stackA.size(); i++) {
+            if (stackA.get(i) != stackB.get(i)) {
+                return false;
+            }
+        }
+        Memory memoryA = a.getMemory();
+        Memory memoryB = b.getMemory();
+        for (int address = 0; address < window; address++) {
+            if (memoryA.read(address) != memoryB.read(address)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Como Machine.describe, pero con la memoria de la ventana comparada
+    // (la memoria sólo mapa no tiene celdas directas) y la salida del programa
+    private static String describe(Machine machine, String fault, int window) {
+        String state = machine.describe();
+        StringBuilder sb = new StringBuilder(state.substring(0, state.indexOf(" mem=") + 5));
+        Memory memory = machine.getMemory();
+        boolean first = true;
+        for (int address = 0; address < window; address++) {
+            int value = memory.read(address);
+            if (value != 0) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(address).append(':').append(value);
+                first = false;
+            }
+        }
+        String output = console(machine).text();
+        if (!output.isEmpty()) {
+            sb.append(" salida=\"").append(output.replace(System.lineSeparator(), "\\n")).append('"');
+        }
+        return sb + (fault == null ? "" : " fault=" + fault);
+    }
+
+    private static int put(int[] image, int index, int value) {
+        if (index < image.length) {
+            image[index++] = value;
+        }
+        return index;
+    }
+
+    private static int smallValue(Random random) {
+        return random.nextInt(13) - 4;
+    }
+
+    // Opcodes distintos declarados en JSimpleCPU
+    private static byte[] jsimpleOpcodes() {
+        TreeSet<Byte> opcodes = new TreeSet<>();
+        for (Field field : JSimpleCPU.class.getFields()) {
+            if (field.getType() == byte.class) {
+                try {
+                    opcodes.add(field.getByte(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        byte[] result = new byte[opcodes.size()];
+        int i = 0;
+        for (byte opcode : opcodes) {
+            result[i++] = opcode;
+        }
+        return result;
+    }
+
+    // Ejecuta un reproductor en todos los motores de su ISA; devuelve el código de salida
+    private static int reproduce(String[] args) {
+        if (args.length != 6) {
+            throw new IllegalArgumentException("se esperaba: repro ISA MEMORIA PILA PASOS PALABRAS");
+        }
+        Isa isa = null;
+        for (Isa candidate : ISAS) {
+            if (candidate.name.equals(args[1])) {
+                isa = candidate;
+            }
+        }
+        if (isa == null) {
+            throw new IllegalArgumentException("ISA desconocido: " + args[1]);
+        }
+        int[] image = new int[Integer.parseInt(args[2])];
+        String[] words = args[5].split(",");
+        if (words.length > image.length) {
+            throw new IllegalArgumentException("el programa no cabe en " + image.length + " celdas");
+        }
+        for (int i = 0; i < words.length; i++) {
+            image[i] = Integer.decode(words[i]);
+        }
+        Worker worker = new Worker();
+        worker.stackLimit = Integer.parseInt(args[3]);
+        Machine[] engines = isa.createEngines(image.length);
+        int diverging = worker.lockstep(engines, image, Long.parseLong(args[4]));
+        System.out.println(isa.reference.name + ": " + describe(engines[0], worker.faults[0], image.length));
+        for (int j = 1; j < engines.length; j++) {
+            System.out.println(isa.alternatives.get(j - 1).name + ": " + describe(engines[j], worker.faults[j], image.length));
+        }
+        if (diverging < 0) {
+            System.out.println("Sin divergencias");
+            return 0;
+        }
+        System.out.println("DIVERGENCIA: " + isa.alternatives.get(diverging - 1).name + " tras " + worker.chunkEnd
+                + " instrucciones");
+        return 1;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("repro")) {
+            System.exit(reproduce(args));
+        }
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long baseSeed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        AtomicLong nextSeed = new AtomicLong(baseSeed);
+        AtomicReference<Divergence> found = new AtomicReference<>();
+        LongAdder programs = new LongAdder();
+        LongAdder executed = new LongAdder();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                Worker worker = new Worker();
+                while (found.get() == null && System.nanoTime() < deadline) {
+                    long seed = nextSeed.getAndIncrement();
+                    Divergence divergence = worker.check((int) Math.floorMod(seed, (long) ISAS.length), seed, executed);
+                    programs.increment();
+                    if (divergence != null) {
+                        found.compareAndSet(null, divergence);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        List<String> engines = new ArrayList<>();
+        for (Isa isa : ISAS) {
+            for (Engine engine : isa.alternatives) {
+                engines.add(engine.name);
+            }
+        }
+        System.out.println("Motores comparados: " + engines);
+        System.out.println(String.format("Semilla inicial %d, %d programas, %d instrucciones de referencia en %.1f s (%.1f M instr/s, %d hilos)",
+                baseSeed, programs.sum(), executed.sum(), elapsed, executed.sum() / elapsed / 1e6, threads));
+        Divergence divergence = found.get();
+        if (divergence != null) {
+            divergence.print(System.out);
+            System.exit(1);
+        }
+        System.out.println("Sin divergencias");
+    }
+}
@@ -0,0 +1,122 @@
+package jsimplecpu;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Pila de enteros sin boxing ni sincronización, con la misma semántica
+ * que java.util.Stack para las operaciones que usan los ISAs.
+ */
+public class IntStack {
+
+    private int[] items = new int[16];
+    private int size = 0;
+    private int limit = Integer.MAX_VALUE; // Profundidad máxima
+
+    public void push(int value) {
+        if (size >= limit) {
+            throw overflow();
+        }
+        spill(value);
+    }
+
+    // Lanza el mismo error que push() si no caben pending elementos más,
+    // contando los que un decodificador mantiene fuera de la pila
+    void checkRoom(int pending) {
+        if (size + pending > limit) {
+            throw overflow();
+        }
+    }
+
+    // Apila sin comprobar el límite; sólo para devolver a la pila elementos
+    // que ya se contaron con checkRoom()
+    void spill(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    private IllegalStateException overflow() {
+        return new IllegalStateException("Desbordamiento de pila: " + limit);
+    }
+
+    public int pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return items[--size];
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return items[size - 1];
+    }
+
+    // Elemento en la posición dada, contando desde el fondo
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return items[index];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Igual que Stack.setSize: trunca o rellena (aquí con ceros)
+    public void setSize(int newSize) {
+        if (newSize < 0) {
+            throw new ArrayIndexOutOfBoundsException(newSize);
+        }
+        if (newSize > limit) {
+            throw overflow();
+        }
+        if (newSize > items.length) {
+            items = Arrays.copyOf(items, Math.max(newSize, items.length * 2));
+        }
+        if (newSize > size) {
+            Arrays.fill(items, size, newSize, 0);
+        }
+        size = newSize;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(items[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
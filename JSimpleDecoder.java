@@ -0,0 +1,287 @@
+package jsimplecpu;
+
+import static jsimplecpu.JSimpleCPU.*;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * ISA de JSimpleCPU: máquina de acumulador con instrucciones de una
+ * palabra, opcode en los bits 16-23 y operando de 16 bits.
+ */
+public class JSimpleDecoder implements Decoder {
+
+    @Override
+    public void step(Machine m) {
+        Memory memory = m.memory;
+        IntStack stack = m.stack;
+        int instruction = memory.read(m.pc);
+        byte opcode = (byte) (instruction >> 16);
+        int operand = instruction & 0xFFFF;
+
+        switch (opcode) {
+            case LOAD:
+                m.accumulator = memory.read(operand);
+                break;
+            case STORE:
+                memory.write(operand, m.accumulator);
+                break;
+            case ADD:
+                m.accumulator += memory.read(operand);
+                break;
+            case SUB:
+                m.accumulator -= memory.read(operand);
+                break;
+            case JMP:
+                m.pc = operand - 1; // -1 porque incrementaremos al final
+                break;
+            case JZ:
+                if (m.accumulator == 0) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case PUSH:
+                stack.push(m.accumulator);
+                break;
+            case POP:
+                if (!stack.isEmpty()) {
+                    m.accumulator = stack.pop();
+                } else {
+                    throw new IllegalStateException("Pila vacía, no se puede realizar POP.");
+                }
+                break;
+            case DEL:
+                if (!stack.isEmpty()) {
+                    stack.pop();
+                } else {
+                    throw new IllegalStateException("Pila vacía, no se puede realizar DEL.");
+                }
+                break;
+            case ADC:
+                int valueADC = memory.read(operand);
+                int resultADC = m.accumulator + valueADC + (m.carryFlag ? 1 : 0);
+                m.carryFlag = resultADC > 0xFF;
+                m.accumulator = resultADC & 0xFF;
+                break;
+            case AND:
+                m.accumulator &= memory.read(operand);
+                break;
+            case ASL:
+                m.carryFlag = (m.accumulator & 0x80) != 0;
+                m.accumulator = (m.accumulator << 1) & 0xFF;
+                break;
+            case BCC:
+                if (!m.carryFlag) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BCS:
+                if (m.carryFlag) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BEQ:
+                if (m.accumulator == 0) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BIT:
+                // La bandera Z es visible en la Machine (antes se calculaba y se perdía)
+                int valueBIT = memory.read(operand);
+                m.zeroFlag = (m.accumulator & valueBIT) == 0;
+                m.overflowFlag = (valueBIT & 0x40) != 0;
+                m.carryFlag = (valueBIT & 0x80) != 0;
+                break;
+            case BMI:
+                if (m.accumulator < 0) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BNE:
+                if (m.accumulator != 0) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BPL:
+                if (m.accumulator >= 0) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BVC:
+                if (!m.overflowFlag) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case BVS:
+                if (m.overflowFlag) {
+                    m.pc = operand - 1;
+                }
+                break;
+            case CLC:
+                m.carryFlag = false;
+                break;
+            case CLD:
+                // No Decimal Mode support
+                break;
+            case CLI:
+                // No Interrupt Disable support
+                break;
+            case CLV:
+                m.overflowFlag = false;
+                break;
+            case CMP:
+                int valueCMP = memory.read(operand);
+                m.carryFlag = m.accumulator >= valueCMP;
+                m.accumulator = (m.accumulator - valueCMP) & 0xFF;
+                break;
+            case CPX:
+                m.carryFlag = m.accumulator >= memory.read(operand);
+                break;
+            case CPY:
+                m.carryFlag = m.accumulator >= memory.read(operand);
+                break;
+            case DEC:
+                memory.write(operand, (memory.read(operand) - 1) & 0xFF);
+                break;
+            case DEX:
+            case DEY:
+                // X e Y se emulan en la dirección 0xFF
+                memory.write(0xFF, memory.read(0xFF) - 1);
+                break;
+            case EOR:
+                m.accumulator ^= memory.read(operand);
+                break;
+            case INC:
+                memory.write(operand, (memory.read(operand) + 1) & 0xFF);
+                break;
+            case INX:
+                m.xRegister++;
+                break;
+            case INY:
+                m.yRegister++;
+                break;
+            case JSR:
+                stack.push(m.pc + 2);
+                m.pc = operand - 1;
+                break;
+            case NOP:
+                // No Operation
+                break;
+            case ORA:
+                m.accumulator |= memory.read(operand);
+                break;
+            case PHA:
+            case PHP:
+                // PHP: Push Processor Status (not implemented)
+                stack.push(m.accumulator);
+                break;
+            case PLA:
+                if (!stack.isEmpty()) {
+                    m.accumulator = stack.pop();
+                } else {
+                    throw new IllegalStateException("Pila vacía, no se puede realizar PLA.");
+                }
+                break;
+            case PLP:
+                // Pull Processor Status (not implemented)
+                if (!stack.isEmpty()) {
+                    m.accumulator = stack.pop();
+                } else {
+                    throw new IllegalStateException("Pila vacía, no se puede realizar PLP.");
+                }
+                break;
+            case ROL:
+                boolean bit = (m.accumulator & 0x80) != 0;
+                m.accumulator = (m.accumulator << 1) | (m.carryFlag ? 1 : 0);
+                m.carryFlag = bit;
+                break;
+            case ROR:
+                boolean carry = (m.accumulator & 0x01) != 0;
+                m.accumulator = (m.accumulator >> 1) | (m.carryFlag ? 0x80 : 0);
+                m.carryFlag = carry;
+                break;
+            case RTI:
+                // Return from Interrupt (not implemented)
+                break;
+            case RTS:
+                if (!stack.isEmpty()) {
+                    m.pc = stack.pop();
+                } else {
+                    throw new IllegalStateException("Pila vacía, no se puede realizar RTS.");
+                }
+                break;
+            case SBC:
+                int valueSBC = memory.read(operand);
+                int resultSBC = m.accumulator - valueSBC - (m.carryFlag ? 0 : 1);
+                m.carryFlag = resultSBC >= 0;
+                m.accumulator = resultSBC & 0xFF;
+                break;
+            case SEC:
+                m.carryFlag = true;
+                break;
+            case SED:
+                // Set Decimal Flag (not implemented)
+                break;
+            case SEI:
+                // Set Interrupt Disable (not implemented)
+                break;
+            case STA:
+                memory.write(operand, m.accumulator);
+                break;
+            case STX:
+                stack.push(m.xRegister);
+                break;
+            case STY:
+                stack.push(m.yRegister);
+                break;
+            case TAX:
+                m.xRegister = m.accumulator;
+                break;
+            case TAY:
+                m.yRegister = m.accumulator;
+                break;
+            case TSX:
+                m.xRegister = stack.size();
+                break;
+            case TXA:
+                m.accumulator = m.xRegister;
+                break;
+            case TXS:
+                stack.setSize(m.xRegister);
+                break;
+            case TYA:
+                m.accumulator = m.yRegister;
+                break;
+            case LDX:
+                m.xRegister = memory.read(operand);
+                break;
+            case LDY:
+                m.yRegister = memory.read(operand);
+                break;
+            case LDA:
+                m.accumulator = memory.read(operand);
+                break;
+            case LSR:
+                m.carryFlag = (m.accumulator & 0x01) != 0;
+                m.accumulator >>= 1;
+                break;
+            case 0x00: // HALT or BRK opcode
+                m.haltFlag = true;
+                break;
+            default:
+                m.getConsole().println("Instrucción desconocida: " + opcode);
+        }
+        m.pc++;
+    }
+
+    @Override
+    public int opcodeAt(Machine m, int address) {
+        return (byte) (m.memory.read(address) >> 16);
+    }
+
+    @Override
+    public String name() {
+        return "JSimpleCPU";
+    }
+}
@@ -0,0 +1,297 @@
+package jsimplecpu;
+
+import java.io.PrintStream;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Núcleo de ejecución común a SimpleCPU y JSimpleCPU.
+ *
+ * Contiene los registros y banderas de ambos ISAs, la memoria, la pila y
+ * la maquinaria de ejecución (presupuesto de pasos, traza y perfil). El
+ * ISA concreto lo aporta un Decoder.
+ */
+public class Machine {
+
+    final Memory memory; // Memoria principal
+    final IntStack stack = new IntStack(); // Pila de sistema
+    private final Decoder decoder; // ISA
+
+    int pc = 0; // Contador de programa
+    int accumulator = 0; // Registro acumulador
+    int xRegister = 0; // Registro X
+    int yRegister = 0; // Registro Y
+    boolean zeroFlag = false; // Bandera de cero
+    boolean carryFlag = false; // Bandera de acarreo
+    boolean overflowFlag = false; // Bandera de desbordamiento
+    boolean haltFlag = false; // Bandera de paro (halt)
+
+    private long instructionCount = 0; // Instrucciones ejecutadas desde el último reset
+    private long stepBudget = Long.MAX_VALUE; // Máximo de instrucciones desde el último reset
+    private Tracer tracer = null;
+    private Recorder recorder = null; // Registro de entradas externas (record/replay)
+    private PrintStream console = null; // Mensajes del programa; null para System.out
+
+    public Machine(Memory memory, Decoder decoder) {
+        this.memory = memory;
+        this.decoder = decoder;
+    }
+
+    public void run() {
+        try {
+            decoder.run(this);
+        } catch (RuntimeException e) {
+            if (recorder != null) {
+                recorder.onFault();
+            }
+            throw e;
+        }
+    }
+
+    // Bucle de interpretación genérico, una instrucción por iteración
+    void interpret() {
+        while (canStep()) {
+            if (tracer != null) {
+                tracer.trace(this, decoder.opcodeAt(this, pc));
+            }
+            decoder.step(this);
+            instructionCount++;
+        }
+    }
+
+    // Ejecuta una sola instrucción; devuelve false si no se pudo ejecutar
+    public boolean step() {
+        if (!canStep()) {
+            return false;
+        }
+        if (tracer != null) {
+            tracer.trace(this, decoder.opcodeAt(this, pc));
+        }
+        try {
+            decoder.step(this);
+        } catch (RuntimeException e) {
+            if (recorder != null) {
+                recorder.onFault();
+            }
+            throw e;
+        }
+        instructionCount++;
+        return true;
+    }
+
+    public boolean canStep() {
+        return !haltFlag && instructionCount < stepBudget && memory.isExecutable(pc);
+    }
+
+    public boolean isBudgetExhausted() {
+        return !haltFlag && instructionCount >= stepBudget;
+    }
+
+    // Limpia registros, banderas, pila y memoria. A diferencia de la
+    // versión original de JSimpleCPU también pone a cero X e Y, para que
+    // un programa no herede los registros del anterior
+    public void reset() {
+        if (recorder != null) {
+            recorder.onReset();
+        }
+        pc = 0;
+        accumulator = 0;
+        xRegister = 0;
+        yRegister = 0;
+        zeroFlag = false;
+        carryFlag = false;
+        overflowFlag = false;
+        haltFlag = false;
+        stack.clear();
+        memory.clear();
+        decoder.memoryReplaced(this);
+        instructionCount = 0;
+    }
+
+    public Decoder getDecoder() {
+        return decoder;
+    }
+
+    // Memoria y pila se exponen sólo para inspección. Modificarlas
+    // directamente no pasa por el Recorder ni invalida la traducción del
+    // decodificador; para eso están writeMemory, setStackLimit y reset
+    // (y restore, que no se admite mientras se graba)
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public IntStack getStack() {
+        return stack;
+    }
+
+    public int getStackLimit() {
+        return stack.getLimit();
+    }
+
+    // Profundidad máxima de la pila; queda registrada como entrada externa
+    public void setStackLimit(int limit) {
+        stack.setLimit(limit);
+        if (recorder != null) {
+            recorder.onStackLimit(limit);
+        }
+    }
+
+    public int getPc() {
+        return pc;
+    }
+
+    public void setPc(int pc) {
+        this.pc = pc;
+        if (recorder != null) {
+            recorder.onSetPc(pc);
+        }
+    }
+
+    // Escritura externa en memoria (carga de programas, setMemory); a
+    // diferencia de las escrituras del propio programa, queda registrada
+    public void writeMemory(int address, int value) {
+        memory.write(address, value);
+        decoder.memoryChanged(this, address);
+        if (recorder != null) {
+            recorder.onWrite(address, value);
+        }
+    }
+
+    public int getAccumulator() {
+        return accumulator;
+    }
+
+    public int getXRegister() {
+        return xRegister;
+    }
+
+    public int getYRegister() {
+        return yRegister;
+    }
+
+    public boolean isZeroFlag() {
+        return zeroFlag;
+    }
+
+    public boolean isCarryFlag() {
+        return carryFlag;
+    }
+
+    public boolean isOverflowFlag() {
+        return overflowFlag;
+    }
+
+    public boolean isHalted() {
+        return haltFlag;
+    }
+
+    // Permite reanudar la ejecución tras un HALT
+    public void resume() {
+        haltFlag = false;
+        if (recorder != null) {
+            recorder.onResume();
+        }
+    }
+
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    // Contabiliza instrucciones ejecutadas por un bucle propio del decodificador
+    void addInstructions(long count) {
+        instructionCount += count;
+    }
+
+    public long getStepBudget() {
+        return stepBudget;
+    }
+
+    public void setStepBudget(long stepBudget) {
+        this.stepBudget = stepBudget;
+    }
+
+    // Estado en una línea: registros, banderas, pila y celdas directas no nulas
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("steps=").append(instructionCount)
+                .append(" halted=").append(haltFlag)
+                .append(" pc=").append(pc)
+                .append(" acc=").append(accumulator)
+                .append(" x=").append(xRegister)
+                .append(" y=").append(yRegister)
+                .append(" zero=").append(zeroFlag)
+                .append(" carry=").append(carryFlag)
+                .append(" overflow=").append(overflowFlag)
+                .append(" stack=").append(stack.toString().replace(" ", ""))
+                .append(" mem=");
+        boolean first = true;
+        for (int address = 0; address < memory.size(); address++) {
+            int value = memory.read(address);
+            if (value != 0) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(address).append(':').append(value);
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Copia completa del estado (registros, banderas, pila con su límite y memoria)
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    // Sustituye todo el estado y puede retroceder el contador, así que no
+    // se puede grabar
+    public void restore(Snapshot snapshot) {
+        if (recorder != null) {
+            throw new IllegalStateException("No se puede restaurar una máquina que se está grabando");
+        }
+        pc = snapshot.pc;
+        accumulator = snapshot.accumulator;
+        xRegister = snapshot.xRegister;
+        yRegister = snapshot.yRegister;
+        zeroFlag = snapshot.zeroFlag;
+        carryFlag = snapshot.carryFlag;
+        overflowFlag = snapshot.overflowFlag;
+        haltFlag = snapshot.haltFlag;
+        instructionCount = snapshot.instructionCount;
+        stack.clear();
+        stack.setLimit(snapshot.stackLimit);
+        for (int value : snapshot.stack) {
+            stack.spill(value);
+        }
+        memory.copyFrom(snapshot.memory);
+        decoder.memoryReplaced(this);
+    }
+
+    Recorder getRecorder() {
+        return recorder;
+    }
+
+    void setRecorder(Recorder recorder) {
+        this.recorder = recorder;
+    }
+
+    // Salida de los mensajes del programa (división por cero, instrucción
+    // no válida); por defecto el System.out de cada momento
+    public PrintStream getConsole() {
+        return console != null ? console : System.out;
+    }
+
+    public void setConsole(PrintStream console) {
+        this.console = console;
+    }
+
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+}
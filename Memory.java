@@ -0,0 +1,130 @@
+package jsimplecpu;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Memoria principal compartida por los ISAs.
+ *
+ * Las direcciones dentro de [0, size) se guardan en un arreglo de enteros
+ * (sin boxing). En modo disperso las direcciones fuera de ese rango se
+ * guardan en un mapa y valen 0 si nunca se escribieron; en modo estricto
+ * un acceso fuera de rango lanza ArrayIndexOutOfBoundsException.
+ */
+public class Memory {
+
+    private final int[] cells; // Celdas de acceso directo
+    private final Map<Integer, Integer> outside; // Celdas fuera de rango (null en modo estricto)
+    private int highWater = -1; // Mayor dirección directa escrita desde el último clear()
+
+    private Memory(int size, boolean sparse) {
+        cells = new int[size];
+        outside = sparse ? new HashMap<>() : null;
+    }
+
+    // Copia independiente (para instantáneas)
+    private Memory(Memory source) {
+        cells = source.cells.clone();
+        highWater = source.highWater;
+        outside = source.outside == null ? null : new HashMap<>(source.outside);
+    }
+
+    // Memoria de tamaño fijo, como el int[] de SimpleCPU
+    public static Memory strict(int size) {
+        return new Memory(size, false);
+    }
+
+    // Memoria sin límite de direcciones, como el HashMap de JSimpleCPU
+    public static Memory sparse(int denseSize) {
+        return new Memory(denseSize, true);
+    }
+
+    public int read(int address) {
+        if (address >= 0 && address < cells.length) {
+            return cells[address];
+        }
+        if (outside == null) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        return outside.getOrDefault(address, 0);
+    }
+
+    public void write(int address, int value) {
+        if (address >= 0 && address < cells.length) {
+            cells[address] = value;
+            if (address > highWater) {
+                highWater = address;
+            }
+        } else if (outside == null) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        } else {
+            outside.put(address, value);
+        }
+    }
+
+    // Indica si el PC puede apuntar a esta dirección
+    public boolean isExecutable(int address) {
+        return outside != null || (address >= 0 && address < cells.length);
+    }
+
+    public boolean contains(int address) {
+        return address >= 0 && address < cells.length;
+    }
+
+    // Tamaño de la zona de acceso directo
+    public int size() {
+        return cells.length;
+    }
+
+    public boolean isSparse() {
+        return outside != null;
+    }
+
+    public Memory copy() {
+        return new Memory(this);
+    }
+
+    // Restaura el contenido de una copia con la misma geometría
+    public void copyFrom(Memory source) {
+        if (source.cells.length != cells.length || source.isSparse() != isSparse()) {
+            throw new IllegalArgumentException("La memoria de origen tiene otra geometría");
+        }
+        System.arraycopy(source.cells, 0, cells, 0, cells.length);
+        highWater = cells.length - 1;
+        if (outside != null) {
+            outside.clear();
+            outside.putAll(source.outside);
+        }
+    }
+
+    // Hash FNV-1a del contenido (celdas directas y dispersas en orden)
+    public long hash() {
+        long h = 0xcbf29ce484222325L;
+        for (int value : cells) {
+            h = (h ^ value) * 0x100000001b3L;
+        }
+        if (outside != null) {
+            for (Map.Entry<Integer, Integer> entry : new TreeMap<>(outside).entrySet()) {
+                h = (h ^ entry.getKey()) * 0x100000001b3L;
+                h = (h ^ entry.getValue()) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    // Sólo se limpia hasta la mayor dirección escrita, para que reutilizar
+    // una memoria grande casi vacía sea barato
+    public void clear() {
+        Arrays.fill(cells, 0, highWater + 1, 0);
+        highWater = -1;
+        if (outside != null) {
+            outside.clear();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package jsimplecpu;
+
+import java.util.Arrays;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Cuenta cuántas veces se ejecuta cada opcode (módulo 256).
+ */
+public class Profiler implements Tracer {
+
+    private final long[] counts = new long[256];
+
+    @Override
+    public void trace(Machine machine, int opcode) {
+        counts[opcode & 0xFF]++;
+    }
+
+    public long getCount(int opcode) {
+        return counts[opcode & 0xFF];
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    public void printReport() {
+        System.out.println("Perfil de opcodes (" + getTotal() + " instrucciones):");
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                System.out.println(String.format("  0x%02X: %d", i, counts[i]));
+            }
+        }
+    }
+}
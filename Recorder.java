@@ -0,0 +1,72 @@
+package jsimplecpu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Graba las entradas externas de una Machine para poder reproducir la
+ * ejecución con Replayer. No añade trabajo por instrucción: sólo se
+ * registran las llamadas externas (writeMemory, reset, resume, setPc,
+ * setStackLimit) y los fallos del programa.
+ */
+public class Recorder {
+
+    private final Machine machine;
+    private final Snapshot image;
+    private final List<Recording.Event> events = new ArrayList<>();
+    private long base = 0; // Instante del último reset
+
+    private Recorder(Machine machine) {
+        this.machine = machine;
+        this.image = machine.snapshot();
+    }
+
+    // Empieza a grabar a partir del estado actual de la máquina
+    public static Recorder start(Machine machine) {
+        if (machine.getRecorder() != null) {
+            throw new IllegalStateException("La máquina ya se está grabando");
+        }
+        Recorder recorder = new Recorder(machine);
+        machine.setRecorder(recorder);
+        return recorder;
+    }
+
+    public Recording stop() {
+        machine.setRecorder(null);
+        return new Recording(image, image.hash(), events, time(), machine.snapshot().hash());
+    }
+
+    private long time() {
+        return base + machine.getInstructionCount();
+    }
+
+    void onWrite(int address, int value) {
+        events.add(new Recording.Event(time(), Recording.Event.WRITE, address, value));
+    }
+
+    // Se llama antes de que reset() ponga a cero el contador
+    void onReset() {
+        base = time();
+        events.add(new Recording.Event(base, Recording.Event.RESET, 0, 0));
+    }
+
+    void onResume() {
+        events.add(new Recording.Event(time(), Recording.Event.RESUME, 0, 0));
+    }
+
+    void onSetPc(int pc) {
+        events.add(new Recording.Event(time(), Recording.Event.SET_PC, 0, pc));
+    }
+
+    void onStackLimit(int limit) {
+        events.add(new Recording.Event(time(), Recording.Event.STACK_LIMIT, 0, limit));
+    }
+
+    void onFault() {
+        events.add(new Recording.Event(time(), Recording.Event.FAULT, 0, 0));
+    }
+}
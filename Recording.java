@@ -0,0 +1,135 @@
+package jsimplecpu;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Resultado de un Recorder: hash de la imagen inicial, entradas externas
+ * con el instante (en instrucciones) en que llegaron, instante final y
+ * hash del estado final.
+ *
+ * Los ISAs no tienen dispositivos de entrada ni interrupciones, así que
+ * las únicas entradas no deterministas son las acciones externas sobre la
+ * máquina: escrituras en memoria, reset, reanudación tras HALT, cambios
+ * de PC y del límite de pila. También se anotan los fallos (excepciones)
+ * del programa, porque pueden dejar el estado a medio modificar y el
+ * anfitrión puede seguir ejecutando después.
+ */
+public class Recording {
+
+    private static final int MAGIC = 0x4A534352; // "JSCR"
+
+    /**
+     * Entrada externa. El instante cuenta las instrucciones ejecutadas
+     * desde el inicio de la grabación, sin reiniciarse con reset().
+     */
+    public static final class Event {
+
+        public static final int WRITE = 1;
+        public static final int RESET = 2;
+        public static final int RESUME = 3;
+        public static final int SET_PC = 4;
+        public static final int FAULT = 5;
+        public static final int STACK_LIMIT = 6;
+
+        final long time;
+        final int kind;
+        final int address;
+        final int value;
+
+        Event(long time, int kind, int address, int value) {
+            this.time = time;
+            this.kind = kind;
+            this.address = address;
+            this.value = value;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getKind() {
+            return kind;
+        }
+
+        public int getAddress() {
+            return address;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    private final Snapshot image; // Sólo en memoria; no se serializa
+    private final long imageHash;
+    private final List<Event> events;
+    private final long endTime;
+    private final long finalHash;
+
+    Recording(Snapshot image, long imageHash, List<Event> events, long endTime, long finalHash) {
+        this.image = image;
+        this.imageHash = imageHash;
+        this.events = Collections.unmodifiableList(events);
+        this.endTime = endTime;
+        this.finalHash = finalHash;
+    }
+
+    // Imagen inicial, o null si la grabación se leyó de un flujo
+    public Snapshot getImage() {
+        return image;
+    }
+
+    public long getImageHash() {
+        return imageHash;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getFinalHash() {
+        return finalHash;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(imageHash);
+        out.writeLong(endTime);
+        out.writeLong(finalHash);
+        out.writeInt(events.size());
+        for (Event event : events) {
+            out.writeLong(event.time);
+            out.writeByte(event.kind);
+            out.writeInt(event.address);
+            out.writeInt(event.value);
+        }
+    }
+
+    public static Recording readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("No es una grabación de jSimpleCPU");
+        }
+        long imageHash = in.readLong();
+        long endTime = in.readLong();
+        long finalHash = in.readLong();
+        int count = in.readInt();
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(new Event(in.readLong(), in.readByte(), in.readInt(), in.readInt()));
+        }
+        return new Recording(null, imageHash, events, endTime, finalHash);
+    }
+}
@@ -0,0 +1,160 @@
+package jsimplecpu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Reproduce una Recording sobre una Machine con el mismo ISA y la misma
+ * memoria. Guarda una instantánea cada snapshotInterval instrucciones
+ * para que seek() sólo tenga que reejecutar desde la más cercana.
+ */
+public class Replayer {
+
+    // Instantánea tomada tras aplicar las entradas de su instante
+    private static final class Checkpoint {
+
+        final long time;
+        final long base;
+        final int cursor;
+        final Snapshot snapshot;
+
+        Checkpoint(long time, long base, int cursor, Snapshot snapshot) {
+            this.time = time;
+            this.base = base;
+            this.cursor = cursor;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final Machine machine;
+    private final List<Recording.Event> events;
+    private final long endTime;
+    private final long finalHash;
+    private final long snapshotInterval;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private long base = 0; // Instante del último reset
+    private int cursor = 0; // Siguiente entrada por aplicar
+
+    public Replayer(Machine machine, Recording recording, Snapshot image, long snapshotInterval) {
+        if (image == null || image.hash() != recording.getImageHash()) {
+            throw new IllegalArgumentException("La imagen inicial no coincide con la grabación");
+        }
+        if (machine.getRecorder() != null) {
+            throw new IllegalStateException("No se puede reproducir sobre una máquina que se está grabando");
+        }
+        this.machine = machine;
+        this.events = recording.getEvents();
+        this.endTime = recording.getEndTime();
+        this.finalHash = recording.getFinalHash();
+        this.snapshotInterval = snapshotInterval;
+        machine.restore(image);
+        checkpoints.add(new Checkpoint(time(), base, cursor, image));
+    }
+
+    public Replayer(Machine machine, Recording recording) {
+        this(machine, recording, recording.getImage(), 100_000);
+    }
+
+    // Instrucciones ejecutadas desde el inicio de la grabación
+    public long time() {
+        return base + machine.getInstructionCount();
+    }
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    // Deja la máquina justo antes de ejecutar la instrucción número target
+    public void seek(long target) {
+        target = Math.min(target, endTime);
+        Checkpoint nearest = checkpoints.get(0);
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.time <= target) {
+                nearest = checkpoint;
+            }
+        }
+        if (target < time() || nearest.time > time()) {
+            machine.restore(nearest.snapshot);
+            base = nearest.base;
+            cursor = nearest.cursor;
+        }
+        advanceTo(target);
+    }
+
+    public void replayToEnd() {
+        seek(endTime);
+    }
+
+    // Indica si el estado actual coincide con el final grabado
+    public boolean matchesRecording() {
+        return time() == endTime && machine.snapshot().hash() == finalHash;
+    }
+
+    private void advanceTo(long target) {
+        while (true) {
+            long now = time();
+            // Un FAULT pendiente se consume al volver a fallar la ejecución
+            while (cursor < events.size() && events.get(cursor).time == now
+                    && events.get(cursor).kind != Recording.Event.FAULT) {
+                apply(events.get(cursor++));
+            }
+            if (now % snapshotInterval == 0 && now > checkpoints.get(checkpoints.size() - 1).time) {
+                checkpoints.add(new Checkpoint(now, base, cursor, machine.snapshot()));
+            }
+            // Un fallo grabado en este instante forma parte de él
+            boolean fault = cursor < events.size() && events.get(cursor).time == now;
+            if (now >= target && !fault) {
+                return;
+            }
+            long next = Math.min(target, (now / snapshotInterval + 1) * snapshotInterval);
+            if (fault) {
+                next = now + 1;
+            } else if (cursor < events.size()) {
+                next = Math.min(next, events.get(cursor).time);
+            }
+            machine.setStepBudget(next - base);
+            try {
+                machine.run();
+            } catch (RuntimeException e) {
+                if (cursor < events.size() && events.get(cursor).time == time()
+                        && events.get(cursor).kind == Recording.Event.FAULT) {
+                    cursor++;
+                    continue;
+                }
+                throw e;
+            }
+            if (time() == now) {
+                return; // Detenida sin más entradas en este instante
+            }
+        }
+    }
+
+    private void apply(Recording.Event event) {
+        switch (event.kind) {
+            case Recording.Event.WRITE:
+                machine.writeMemory(event.address, event.value);
+                break;
+            case Recording.Event.RESET:
+                base = event.time;
+                machine.reset();
+                break;
+            case Recording.Event.RESUME:
+                machine.resume();
+                break;
+            case Recording.Event.SET_PC:
+                machine.setPc(event.value);
+                break;
+            case Recording.Event.STACK_LIMIT:
+                machine.setStackLimit(event.value);
+                break;
+            case Recording.Event.FAULT:
+                break;
+            default:
+                throw new IllegalStateException("Entrada desconocida en la grabación: " + event.kind);
+        }
+    }
+}
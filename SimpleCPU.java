@@ -5,144 +5,55 @@ package jsimplecpu;
  *
  * @author Slam
  */
-import java.util.Stack;
-
 public class SimpleCPU {
 
-    private Stack<Integer> stack; // Pila de sistema
-    private boolean zeroFlag; // Bandera de cero
-    private boolean carryFlag; // Bandera de acarreo
-    private boolean haltFlag; // Bandera de paro (halt)
-    private int[] memory; // Memoria
-    private int pc; // Contador de programa
+    private final Machine machine; // Núcleo de ejecución (memoria, pila, banderas y PC)
 
     public SimpleCPU(int memorySize) {
-        stack = new Stack<>();
-        memory = new int[memorySize];
-        pc = 0;
-        zeroFlag = false;
-        carryFlag = false;
-        haltFlag = false;
+        this(memorySize, false);
+    }
+
+    // stackCaching: mantiene el tope de la pila en registros (StackCachingDecoder)
+    public SimpleCPU(int memorySize, boolean stackCaching) {
+        machine = new Machine(Memory.strict(memorySize),
+                stackCaching ? new StackCachingDecoder() : new SimpleDecoder());
     }
 
     public void loadMemory(int address, int value) {
-        if (address >= 0 && address < memory.length) {
-            memory[address] = value;
+        if (machine.memory.contains(address)) {
+            machine.writeMemory(address, value);
         }
     }
 
     public void run() {
-        while (!haltFlag && pc >= 0 && pc < memory.length) {
-            int instruction = memory[pc];
-            execute(instruction);
-            pc++;
-        }
+        machine.run();
     }
 
-    private void execute(int instruction) {
-        switch (instruction) {
-            case 0x01: // mov
-                int dest = memory[pc + 1];
-                int src = memory[pc + 2];
-                memory[dest] = memory[src];
-                pc += 2;
-                break;
-            case 0x02: // push
-                stack.push(memory[pc + 1]);
-                pc++;
-                break;
-            case 0x03: // pop
-                memory[pc + 1] = stack.pop();
-                pc++;
-                break;
-            case 0x04: // popa
-                while (!stack.isEmpty()) {
-                    memory[pc++] = stack.pop();
-                }
-                pc--;
-                break;
-            case 0x05: // del
-                stack.clear();
-                break;
-            case 0x06: // add
-                int a = stack.pop();
-                int b = stack.pop();
-                int sum = a + b;
-                stack.push(sum);
-                checkZeroFlag(sum);
-                break;
-            case 0x07: // sub
-                int minuend = stack.pop();
-                int subtrahend = stack.pop();
-                int difference = minuend - subtrahend;
-                stack.push(difference);
-                checkZeroFlag(difference);
-                break;
-            case 0x08: // dec
-                int value = stack.pop();
-                value--;
-                stack.push(value);
-                checkZeroFlag(value);
-                break;
-            case 0x09: // inc
-                int valueInc = stack.pop();
-                valueInc++;
-                stack.push(valueInc);
-                checkZeroFlag(valueInc);
-                break;
-            case 0x0A: // mult
-                int multiplicand = stack.pop();
-                int multiplier = stack.pop();
-                int product = multiplicand * multiplier;
-                stack.push(product);
-                checkZeroFlag(product);
-                break;
-            case 0x0B: // div
-                int dividend = stack.pop();
-                int divisor = stack.pop();
-                if (divisor != 0) {
-                    int quotient = dividend / divisor;
-                    stack.push(quotient);
-                    checkZeroFlag(quotient);
-                } else {
-                    System.out.println("Error: División por cero");
-                }
-                break;
-            case 0x0C: // brk (halt)
-                haltFlag = true;
-                break;
-            case 0x0D: // loop
-                int loopCount = stack.pop();
-                if (loopCount > 0) {
-                    stack.push(loopCount - 1);
-                    pc = memory[pc + 1] - 1;
-                }
-                break;
-            case 0x0E: // go
-                pc = memory[pc + 1] - 1;
-                break;
-            default:
-                System.out.println("Instrucción no válida: " + instruction);
-                break;
-        }
+    public int getStackTop() {
+        return machine.stack.peek();
     }
 
-    private void checkZeroFlag(int result) {
-        zeroFlag = (result == 0);
+    public Machine getMachine() {
+        return machine;
     }
 
     public void printState() {
-        System.out.println("Pila: " + stack);
-        System.out.println("Flags: [Zero: " + zeroFlag + ", Carry: " + carryFlag + ", Halt: " + haltFlag + "]");
-        System.out.println("PC: " + pc);
+        System.out.println("Pila: " + machine.stack);
+        System.out.println("Flags: [Zero: " + machine.zeroFlag + ", Carry: " + machine.carryFlag + ", Halt: " + machine.haltFlag + "]");
+        System.out.println("PC: " + machine.pc);
     }
-    
-    public void reset(){
-        
+
+    public void reset() {
+        machine.reset();
     }
 
     public static void main(String[] args) {
-        SimpleCPU cpu = new SimpleCPU(256);
+        demo(false);
+    }
+
+    // Demostraciones; Conformance las ejecuta también con la pila en registros
+    static void demo(boolean stackCaching) {
+        SimpleCPU cpu = new SimpleCPU(256, stackCaching);
 
         // Ejemplo de carga de memoria para operaciones aritméticas
         // Suma: 5 + 10
@@ -154,11 +65,11 @@ public class SimpleCPU {
         cpu.loadMemory(5, 0x0C); // brk (halt)
 
         cpu.run();
-        System.out.println("Resultado de la suma: " + cpu.stack.peek());
+        System.out.println("Resultado de la suma: " + cpu.getStackTop());
         cpu.printState();
 
         // Resetear CPU
-        cpu = new SimpleCPU(256);
+        cpu = new SimpleCPU(256, stackCaching);
 
         // Resta: 15 - 5
         cpu.loadMemory(0, 0x02); // push 5
@@ -169,11 +80,11 @@ public class SimpleCPU {
         cpu.loadMemory(5, 0x0C); // brk (halt)
 
         cpu.run();
-        System.out.println("Resultado de la resta: " + cpu.stack.peek());
+        System.out.println("Resultado de la resta: " + cpu.getStackTop());
         cpu.printState();
 
         // Resetear CPU
-        cpu = new SimpleCPU(256);
+        cpu = new SimpleCPU(256, stackCaching);
 
         // Multiplicación: 3 * 4
         cpu.loadMemory(0, 0x02); // push 3
@@ -184,11 +95,11 @@ public class SimpleCPU {
         cpu.loadMemory(5, 0x0C); // brk (halt)
 
         cpu.run();
-        System.out.println("Resultado de la multiplicación: " + cpu.stack.peek());
+        System.out.println("Resultado de la multiplicación: " + cpu.getStackTop());
         cpu.printState();
 
         // Resetear CPU
-        cpu = new SimpleCPU(256);
+        cpu = new SimpleCPU(256, stackCaching);
 
         // División: 20 / 4
         cpu.loadMemory(0, 0x02); // push 20
@@ -199,7 +110,7 @@ public class SimpleCPU {
         cpu.loadMemory(5, 0x0C); // brk (halt)
 
         cpu.run();
-        System.out.println("Resultado de la división: " + cpu.stack.peek());
+        System.out.println("Resultado de la división: " + cpu.getStackTop());
         cpu.printState();
     }
 }
@@ -0,0 +1,129 @@
+package jsimplecpu;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * ISA de SimpleCPU: máquina de pila con instrucciones de longitud
+ * variable (opcode seguido de 0, 1 o 2 palabras de operando).
+ */
+public class SimpleDecoder implements Decoder {
+
+    public static final int MOV = 0x01;
+    public static final int PUSH = 0x02;
+    public static final int POP = 0x03;
+    public static final int POPA = 0x04;
+    public static final int DEL = 0x05;
+    public static final int ADD = 0x06;
+    public static final int SUB = 0x07;
+    public static final int DEC = 0x08;
+    public static final int INC = 0x09;
+    public static final int MULT = 0x0A;
+    public static final int DIV = 0x0B;
+    public static final int BRK = 0x0C;
+    public static final int LOOP = 0x0D;
+    public static final int GO = 0x0E;
+
+    @Override
+    public void step(Machine m) {
+        Memory memory = m.memory;
+        IntStack stack = m.stack;
+        int pc = m.pc;
+        int instruction = memory.read(pc);
+        switch (instruction) {
+            case MOV:
+                int dest = memory.read(pc + 1);
+                int src = memory.read(pc + 2);
+                memory.write(dest, memory.read(src));
+                pc += 2;
+                break;
+            case PUSH:
+                stack.push(memory.read(pc + 1));
+                pc++;
+                break;
+            case POP:
+                memory.write(pc + 1, stack.pop());
+                pc++;
+                break;
+            case POPA:
+                while (!stack.isEmpty()) {
+                    memory.write(pc++, stack.pop());
+                }
+                pc--;
+                break;
+            case DEL:
+                stack.clear();
+                break;
+            case ADD:
+                int a = stack.pop();
+                int b = stack.pop();
+                int sum = a + b;
+                stack.push(sum);
+                m.zeroFlag = (sum == 0);
+                break;
+            case SUB:
+                int minuend = stack.pop();
+                int subtrahend = stack.pop();
+                int difference = minuend - subtrahend;
+                stack.push(difference);
+                m.zeroFlag = (difference == 0);
+                break;
+            case DEC:
+                int value = stack.pop() - 1;
+                stack.push(value);
+                m.zeroFlag = (value == 0);
+                break;
+            case INC:
+                int valueInc = stack.pop() + 1;
+                stack.push(valueInc);
+                m.zeroFlag = (valueInc == 0);
+                break;
+            case MULT:
+                int multiplicand = stack.pop();
+                int multiplier = stack.pop();
+                int product = multiplicand * multiplier;
+                stack.push(product);
+                m.zeroFlag = (product == 0);
+                break;
+            case DIV:
+                int dividend = stack.pop();
+                int divisor = stack.pop();
+                if (divisor != 0) {
+                    int quotient = dividend / divisor;
+                    stack.push(quotient);
+                    m.zeroFlag = (quotient == 0);
+                } else {
+                    m.getConsole().println("Error: División por cero");
+                }
+                break;
+            case BRK:
+                m.haltFlag = true;
+                break;
+            case LOOP:
+                int loopCount = stack.pop();
+                if (loopCount > 0) {
+                    stack.push(loopCount - 1);
+                    pc = memory.read(pc + 1) - 1;
+                }
+                break;
+            case GO:
+                pc = memory.read(pc + 1) - 1;
+                break;
+            default:
+                m.getConsole().println("Instrucción no válida: " + instruction);
+                break;
+        }
+        m.pc = pc + 1;
+    }
+
+    @Override
+    public int opcodeAt(Machine m, int address) {
+        return m.memory.read(address);
+    }
+
+    @Override
+    public String name() {
+        return "SimpleCPU";
+    }
+}
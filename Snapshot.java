@@ -0,0 +1,58 @@
+package jsimplecpu;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Copia inmutable del estado completo de una Machine.
+ */
+public final class Snapshot {
+
+    final int pc;
+    final int accumulator;
+    final int xRegister;
+    final int yRegister;
+    final boolean zeroFlag;
+    final boolean carryFlag;
+    final boolean overflowFlag;
+    final boolean haltFlag;
+    final long instructionCount;
+    final int[] stack;
+    final int stackLimit;
+    final Memory memory;
+
+    Snapshot(Machine machine) {
+        pc = machine.pc;
+        accumulator = machine.accumulator;
+        xRegister = machine.xRegister;
+        yRegister = machine.yRegister;
+        zeroFlag = machine.zeroFlag;
+        carryFlag = machine.carryFlag;
+        overflowFlag = machine.overflowFlag;
+        haltFlag = machine.haltFlag;
+        instructionCount = machine.getInstructionCount();
+        stack = machine.stack.toArray();
+        stackLimit = machine.stack.getLimit();
+        memory = machine.memory.copy();
+    }
+
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    // Hash del estado visible (sin el contador de instrucciones)
+    public long hash() {
+        long h = memory.hash();
+        int[] registers = {pc, accumulator, xRegister, yRegister,
+            (zeroFlag ? 1 : 0) | (carryFlag ? 2 : 0) | (overflowFlag ? 4 : 0) | (haltFlag ? 8 : 0),
+            stack.length, stackLimit};
+        for (int value : registers) {
+            h = (h ^ value) * 0x100000001b3L;
+        }
+        for (int value : stack) {
+            h = (h ^ value) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
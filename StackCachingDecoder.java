@@ -0,0 +1,289 @@
+package jsimplecpu;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Modo de ejecución de SimpleCPU que mantiene los dos elementos superiores
+ * de la pila en variables locales (tos y nos) y sólo los vuelca a la pila
+ * cuando la profundidad lo exige o al salir del bucle.
+ *
+ * Además pretraduce las secuencias "push imm; push imm; add|sub|mult|div"
+ * a una sola operación. La traducción se conserva entre llamadas a run():
+ * las escrituras del propio programa (mov, pop, popa) y las externas
+ * (Machine.writeMemory) vuelven a traducir las posiciones afectadas, y un
+ * reset, un restore o una escritura hecha desde step() la descarta.
+ *
+ * El resultado final (pila, banderas, PC y contador de instrucciones) es
+ * el mismo que el de SimpleDecoder. Con un Tracer instalado, o con más
+ * elementos en la pila que su límite, se usa el intérprete normal.
+ */
+public class StackCachingDecoder extends SimpleDecoder {
+
+    private int[] fused = null; // Operador fusionado que empieza en cada dirección
+    private Memory translated = null; // Memoria a la que corresponde la traducción
+
+    @Override
+    public void run(Machine m) {
+        // Con la pila por encima del límite (se redujo con datos dentro),
+        // las operaciones que sacan y vuelven a meter fallan en el
+        // intérprete normal; la caché no las detectaría
+        if (m.getTracer() != null || m.stack.size() > m.stack.getLimit()) {
+            m.interpret();
+            return;
+        }
+        Memory memory = m.memory;
+        IntStack stack = m.stack;
+        if (fused == null || translated != memory) {
+            fused = translate(memory);
+            translated = memory;
+        }
+        int[] fused = this.fused;
+        long budget = m.getStepBudget();
+        long start = m.getInstructionCount();
+        long count = start;
+        int pc = m.pc;
+        int tos = 0; // Tope de la pila
+        int nos = 0; // Segundo elemento de la pila
+        int cached = 0; // Cuántos elementos de la pila están en tos/nos
+
+        try {
+            while (!m.haltFlag && memory.isExecutable(pc) && count < budget) {
+                // Operación pretraducida: push a; push b; op
+                // (si los dos push caben en la pila; si no, el intérprete
+                // normal falla en el push exacto)
+                int op = pc < fused.length ? fused[pc] : 0;
+                if (op != 0 && budget - count >= 3 && stack.size() + cached + 2 <= stack.getLimit()) {
+                    int top = memory.read(pc + 3);
+                    int second = memory.read(pc + 1);
+                    boolean push = true;
+                    int result;
+                    switch (op) {
+                        case ADD:
+                            result = top + second;
+                            break;
+                        case SUB:
+                            result = top - second;
+                            break;
+                        case MULT:
+                            result = top * second;
+                            break;
+                        default: // DIV
+                            if (second != 0) {
+                                result = top / second;
+                            } else {
+                                m.getConsole().println("Error: División por cero");
+                                result = 0;
+                                push = false;
+                            }
+                            break;
+                    }
+                    if (push) {
+                        if (cached == 2) {
+                            stack.spill(nos);
+                        } else {
+                            cached++;
+                        }
+                        nos = tos;
+                        tos = result;
+                        m.zeroFlag = (result == 0);
+                    }
+                    pc += 5;
+                    count += 3;
+                    continue;
+                }
+
+                int instruction = memory.read(pc);
+                switch (instruction) {
+                    case MOV:
+                        int dest = memory.read(pc + 1);
+                        memory.write(dest, memory.read(memory.read(pc + 2)));
+                        retranslate(memory, fused, dest);
+                        pc += 2;
+                        break;
+                    case PUSH:
+                        int value = memory.read(pc + 1);
+                        // tos y nos cuentan para el límite de la pila
+                        stack.checkRoom(cached + 1);
+                        if (cached == 2) {
+                            stack.spill(nos);
+                        } else {
+                            cached++;
+                        }
+                        nos = tos;
+                        tos = value;
+                        pc++;
+                        break;
+                    case POP:
+                        // Poco frecuente: se vuelca la caché y se usa la pila
+                        if (cached == 2) {
+                            stack.spill(nos);
+                        }
+                        if (cached >= 1) {
+                            stack.spill(tos);
+                        }
+                        cached = 0;
+                        memory.write(pc + 1, stack.pop());
+                        retranslate(memory, fused, pc + 1);
+                        pc++;
+                        break;
+                    case POPA:
+                        if (cached == 2) {
+                            stack.spill(nos);
+                        }
+                        if (cached >= 1) {
+                            stack.spill(tos);
+                        }
+                        cached = 0;
+                        int address = pc;
+                        while (!stack.isEmpty()) {
+                            memory.write(address, stack.pop());
+                            retranslate(memory, fused, address);
+                            address++;
+                        }
+                        pc = address - 1;
+                        break;
+                    case DEL:
+                        stack.clear();
+                        cached = 0;
+                        break;
+                    case ADD:
+                    case SUB:
+                    case MULT:
+                    case DIV:
+                        int a;
+                        int b;
+                        if (cached == 2) {
+                            a = tos;
+                            b = nos;
+                        } else if (cached == 1) {
+                            a = tos;
+                            cached = 0; // a queda consumido aunque falle el segundo pop
+                            b = stack.pop();
+                        } else {
+                            a = stack.pop();
+                            b = stack.pop();
+                        }
+                        cached = 0;
+                        int result;
+                        if (instruction == ADD) {
+                            result = a + b;
+                        } else if (instruction == SUB) {
+                            result = a - b;
+                        } else if (instruction == MULT) {
+                            result = a * b;
+                        } else if (b != 0) {
+                            result = a / b;
+                        } else {
+                            m.getConsole().println("Error: División por cero");
+                            break;
+                        }
+                        tos = result;
+                        cached = 1;
+                        m.zeroFlag = (result == 0);
+                        break;
+                    case DEC:
+                    case INC:
+                        if (cached == 0) {
+                            tos = stack.pop();
+                            cached = 1;
+                        }
+                        tos += instruction == INC ? 1 : -1;
+                        m.zeroFlag = (tos == 0);
+                        break;
+                    case BRK:
+                        m.haltFlag = true;
+                        break;
+                    case LOOP:
+                        if (cached == 0) {
+                            tos = stack.pop();
+                            cached = 1;
+                        }
+                        if (tos > 0) {
+                            tos--;
+                            pc = memory.read(pc + 1) - 1;
+                        } else {
+                            tos = nos;
+                            cached--;
+                        }
+                        break;
+                    case GO:
+                        pc = memory.read(pc + 1) - 1;
+                        break;
+                    default:
+                        m.getConsole().println("Instrucción no válida: " + instruction);
+                        break;
+                }
+                pc++;
+                count++;
+            }
+        } finally {
+            // Guardar el estado en la máquina y volcar la caché a la pila
+            // (spill no comprueba el límite: estos elementos ya contaban)
+            m.pc = pc;
+            m.addInstructions(count - start);
+            if (cached == 2) {
+                stack.spill(nos);
+            }
+            if (cached >= 1) {
+                stack.spill(tos);
+            }
+        }
+    }
+
+    // Instrucción a instrucción (Machine.step o el intérprete normal): las
+    // escrituras del programa no pasan por retranslate, así que se
+    // descarta la traducción y run() la rehace
+    @Override
+    public void step(Machine m) {
+        int instruction = m.memory.read(m.pc);
+        if (instruction == MOV || instruction == POP || instruction == POPA) {
+            fused = null;
+        }
+        super.step(m);
+    }
+
+    @Override
+    public void memoryChanged(Machine m, int address) {
+        if (fused != null && translated == m.memory) {
+            retranslate(m.memory, fused, address);
+        }
+    }
+
+    @Override
+    public void memoryReplaced(Machine m) {
+        fused = null;
+    }
+
+    // Marca en cada dirección el operador de una secuencia push; push; op
+    private static int[] translate(Memory memory) {
+        int[] fused = new int[memory.size()];
+        for (int address = 0; address < fused.length; address++) {
+            fused[address] = match(memory, address);
+        }
+        return fused;
+    }
+
+    // Vuelve a traducir las secuencias que incluyen la dirección escrita
+    private static void retranslate(Memory memory, int[] fused, int written) {
+        for (int address = Math.max(0, written - 4); address <= written && address < fused.length; address++) {
+            fused[address] = match(memory, address);
+        }
+    }
+
+    private static int match(Memory memory, int address) {
+        if (!memory.contains(address + 4)
+                || memory.read(address) != PUSH
+                || memory.read(address + 2) != PUSH) {
+            return 0;
+        }
+        int op = memory.read(address + 4);
+        return op == ADD || op == SUB || op == MULT || op == DIV ? op : 0;
+    }
+
+    @Override
+    public String name() {
+        return "SimpleCPU (pila en registros)";
+    }
+}
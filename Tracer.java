@@ -0,0 +1,21 @@
+package jsimplecpu;
+
+/*
+* Create by Slam
+*/
+
+/**
+ * Se invoca antes de ejecutar cada instrucción cuando está instalado en
+ * una Machine. Sin tracer instalado el bucle de ejecución no paga nada.
+ */
+@FunctionalInterface
+public interface Tracer {
+
+    void trace(Machine machine, int opcode);
+
+    // Traza simple por consola: número de instrucción, PC y opcode
+    static Tracer console() {
+        return (machine, opcode) -> System.out.println(
+                "#" + machine.getInstructionCount() + " PC: " + machine.getPc() + " opcode: " + opcode);
+    }
+}
@@ -2,7 +2,6 @@ package jsimplecpu;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Stack;
 
 /*
 * Create by Slam
@@ -10,15 +9,18 @@ import java.util.Stack;
 
 public class JSimpleCPU {
 
-    // Definición de registros y memoria
-    private int accumulator = 0; // Registro acumulador
-    private int programCounter = 0; // Contador de programa
-    private Map<Integer, Integer> memory = new HashMap<>(); // Memoria simple
-    private Stack<Integer> stack = new Stack<>(); // Pila para manejo de PUSH, POP, DEL
-    private boolean carryFlag = false; // Bandera de acarreo
-    private boolean overflowFlag = false; // Bandera de desbordamiento
-    private int xRegister = 0; // Registro X
-    private int yRegister = 0; // Registro Y
+    // Núcleo de ejecución: registros, memoria (64K celdas directas y el
+    // resto dispersas) y pila
+    private final Machine machine;
+
+    public JSimpleCPU() {
+        this(Memory.sparse(0x10000));
+    }
+
+    // Permite probar otras configuraciones de memoria (Conformance, Fuzzer)
+    JSimpleCPU(Memory memory) {
+        machine = new Machine(memory, new JSimpleDecoder());
+    }
 
     // Definición de instrucciones
     public static final byte BRK = (byte) 0x00; // Detener ejecución
@@ -92,296 +94,13 @@ public class JSimpleCPU {
 
     // Ejecución del ciclo de instrucciones
     public void run() {
-        boolean running = true;
-        while (running) {
-            int instruction = memory.getOrDefault(programCounter, 0);
-            byte opcode = (byte) (instruction >> 16);
-            int operand = instruction & 0xFFFF;
-            
-            if (operand < 0 || operand > 0xFFFF) {
-                throw new IllegalArgumentException("Operando fuera de rango: " + operand);
-            }
-            
-            switch (opcode) {
-                case LOAD:
-                    accumulator = memory.getOrDefault(operand, 0);
-                    break;
-                case STORE:
-                    memory.put(operand, accumulator);
-                    break;
-                case ADD:
-                    accumulator += memory.getOrDefault(operand, 0);
-                    break;
-                case SUB:
-                    accumulator -= memory.getOrDefault(operand, 0);
-                    break;
-                case JMP:
-                    programCounter = operand - 1; // -1 porque incrementaremos al final
-                    break;
-                case JZ:
-                    if (accumulator == 0) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case PUSH:
-                    stack.push(accumulator);
-                    break;
-                case POP:
-                    if (!stack.isEmpty()) {
-                        accumulator = stack.pop();
-                    } else {
-                        throw new IllegalStateException("Pila vacía, no se puede realizar POP.");
-                    }
-                    break;
-                case DEL:
-                    if (!stack.isEmpty()) {
-                        stack.pop();
-                    } else {
-                        throw new IllegalStateException("Pila vacía, no se puede realizar DEL.");
-                    }
-                    break;
-                case ADC:
-                    performADC(operand);
-                    break;
-                case AND:
-                    accumulator &= memory.getOrDefault(operand, 0);
-                    break;
-                case ASL:
-                    performASL();
-                    break;
-                case BCC:
-                    if (!carryFlag) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BCS:
-                    if (carryFlag) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BEQ:
-                    if (accumulator == 0) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BIT:
-                    int valueBIT = memory.getOrDefault(operand, 0);
-                    boolean zeroFlag = (accumulator & valueBIT) == 0;
-                    overflowFlag = (valueBIT & 0x40) != 0;
-                    carryFlag = (valueBIT & 0x80) != 0;
-                    break;
-                case BMI:
-                    if (accumulator < 0) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BNE:
-                    if (accumulator != 0) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BPL:
-                    if (accumulator >= 0) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BVC:
-                    if (!overflowFlag) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case BVS:
-                    if (overflowFlag) {
-                        programCounter = operand - 1;
-                    }
-                    break;
-                case CLC:
-                    carryFlag = false;
-                    break;
-                case CLD:
-                    // No Decimal Mode support
-                    break;
-                case CLI:
-                    // No Interrupt Disable support
-                    break;
-                case CLV:
-                    overflowFlag = false;
-                    break;
-                case CMP:
-                    int valueCMP = memory.getOrDefault(operand, 0);
-                    carryFlag = accumulator >= valueCMP;
-                    accumulator = (accumulator - valueCMP) & 0xFF;
-                    break;
-                case CPX:
-                    int valueCPX = memory.getOrDefault(operand, 0);
-                    carryFlag = (accumulator >= valueCPX);
-                    break;
-                case CPY:
-                    int valueCPY = memory.getOrDefault(operand, 0);
-                    carryFlag = (accumulator >= valueCPY);
-                    break;
-                case DEC:
-                    int valueDEC = memory.getOrDefault(operand, 0);
-                    valueDEC = (valueDEC - 1) & 0xFF;
-                    memory.put(operand, valueDEC);
-                    break;
-                case DEX:
-                    // Decrement X register 
-                    int x = memory.getOrDefault(0xFF, 0); // Usar dirección 0xFF para Y
-                    x--;
-                    memory.put(0xFF, x); // Almacenar el valor decrementado en la dirección 0xFF
-                    break;
-                case DEY:
-                    // Decrement Y register 
-                    int y = memory.getOrDefault(0xFF, 0); // Usar dirección 0xFF para Y
-                    y--;
-                    memory.put(0xFF, y); // Almacenar el valor decrementado en la dirección 0xFF
-                    break;
-                case EOR:
-                    accumulator ^= memory.getOrDefault(operand, 0);
-                    break;
-                case INC:
-                    int valueINC = memory.getOrDefault(operand, 0);
-                    valueINC = (valueINC + 1) & 0xFF;
-                    memory.put(operand, valueINC);
-                    break;
-                case INX:
-                    // Increment X register 
-                    xRegister++;
-                    break;
-                case INY:
-                    // Increment Y register (assumed to be a class variable)
-                    yRegister++;
-                    break;
-                case JSR:
-                    stack.push(programCounter + 2);
-                    programCounter = operand - 1;
-                    break;
-                case NOP:
-                    // No Operation
-                    break;
-                case ORA:
-                    accumulator |= memory.getOrDefault(operand, 0);
-                    break;
-                case PHA:
-                    stack.push(accumulator);
-                    break;
-                case PHP:
-                    // Push Processor Status (not implemented)
-                    stack.push(accumulator);
-                    break;
-                case PLA:
-                    if (!stack.isEmpty()) {
-                        accumulator = stack.pop();
-                    } else {
-                        throw new IllegalStateException("Pila vacía, no se puede realizar PLA.");
-                    }
-                    break;
-                case PLP:
-                    // Pull Processor Status (not implemented)
-                    if (!stack.isEmpty()) {
-                        accumulator = stack.pop();
-                    } else {
-                        throw new IllegalStateException("Pila vacía, no se puede realizar PLP.");
-                    }
-                    break;
-                case ROL:
-                    boolean bit = (accumulator & 0x80) != 0;
-                    accumulator = (accumulator << 1) | (carryFlag ? 1 : 0);
-                    carryFlag = bit;
-                    break;
-                case ROR:
-                    boolean carry = (accumulator & 0x01) != 0;
-                    accumulator = (accumulator >> 1) | (carryFlag ? 0x80 : 0);
-                    carryFlag = carry;
-                    break;
-                case RTI:
-                    // Return from Interrupt (not implemented)
-                    break;
-                case RTS:
-                    if (!stack.isEmpty()) {
-                        programCounter = stack.pop();
-                    } else {
-                        throw new IllegalStateException("Pila vacía, no se puede realizar RTS.");
-                    }
-                    break;
-                case SBC:
-                    int valueSBC = memory.getOrDefault(operand, 0);
-                    int resultSBC = accumulator - valueSBC - (carryFlag ? 0 : 1);
-                    carryFlag = resultSBC >= 0;
-                    accumulator = resultSBC & 0xFF;
-                    break;
-                case SEC:
-                    carryFlag = true;
-                    break;
-                case SED:
-                    // Set Decimal Flag (not implemented)
-                    break;
-                case SEI:
-                    // Set Interrupt Disable (not implemented)
-                    break;
-                case STA:
-                    memory.put(operand, accumulator);
-                    break;
-                case STX:
-                    // Store X Register (assumed to be a class variable)
-                    stack.push(xRegister);
-                    break;
-                case STY:
-                    // Store Y Register 
-                    stack.push(yRegister);
-                    break;
-                case TAX:
-                    xRegister = accumulator;
-                    break;
-                case TAY:
-                    yRegister = accumulator;
-                    break;
-                case TSX:
-                    xRegister = stack.size();
-                    break;
-                case TXA:
-                    accumulator = xRegister;
-                    break;
-                case TXS:
-                    stack.setSize(xRegister);
-                    break;
-                case TYA:
-                    accumulator = yRegister;
-                    break;
-                case LDX:
-                    xRegister = memory.getOrDefault(operand, 0);
-                    break;
-                case LDY:
-                    yRegister = memory.getOrDefault(operand, 0);
-                    break;
-                case LDA:
-                    accumulator = memory.getOrDefault(operand, 0);
-                    break;
-
-                case LSR:
-                    carryFlag = (accumulator & 0x01) != 0;
-                    accumulator >>= 1;
-                    break;
-                case 0x00: // HALT or BRK opcode
-                    running = false;
-                    break;
-                default:
-                    System.out.println("Instrucción desconocida: " + opcode);
-                //throw new IllegalStateException("Instrucción desconocida: " + opcode);
-            }
-            programCounter++;
-        }
+        machine.resume();
+        machine.run();
     }
 
     // Limpiar el estado de la CPU
     public void reset() {
-        accumulator = 0;
-        programCounter = 0;
-        memory.clear();
-        stack.clear(); // Limpiar la pila
-        carryFlag = false;
-        overflowFlag = false;
+        machine.reset();
     }
 
     public void loadProgram(int[] program, Map<Integer, Integer> initialMemory) {
@@ -390,11 +109,13 @@ public class JSimpleCPU {
 
         // Cargar el nuevo programa
         for (int i = 0; i < program.length; i++) {
-            memory.put(i, program[i]);
+            machine.writeMemory(i, program[i]);
         }
 
         // Inicializar la memoria con los valores específicos
-        memory.putAll(initialMemory);
+        for (Map.Entry<Integer, Integer> entry : initialMemory.entrySet()) {
+            machine.writeMemory(entry.getKey(), entry.getValue());
+        }
         initialMemory.clear();
     }
 
@@ -404,38 +125,33 @@ public class JSimpleCPU {
 
         // Cargar el nuevo programa
         for (int i = 0; i < program.length; i++) {
-            memory.put(i, program[i]);
+            machine.writeMemory(i, program[i]);
         }
     }
 
     public void setMemory(int address, int value) {
-        memory.put(address, value);
+        machine.writeMemory(address, value);
     }
 
     public int getMemory(int address) {
-        return memory.getOrDefault(address, 0);
+        return machine.memory.read(address);
     }
 
     public int getStackTop() {
-        return stack.isEmpty() ? 0 : stack.peek();
-    }
-
-    private void performADC(int operand) {
-        int valueADC = memory.getOrDefault(operand, 0);
-        int resultADC = accumulator + valueADC + (carryFlag ? 1 : 0);
-        carryFlag = resultADC > 0xFF;
-        accumulator = resultADC & 0xFF;
+        return machine.stack.isEmpty() ? 0 : machine.stack.peek();
     }
 
-    private void performASL() {
-        carryFlag = (accumulator & 0x80) != 0;
-        accumulator <<= 1;
-        accumulator &= 0xFF;
+    public Machine getMachine() {
+        return machine;
     }
 
     // Método principal para la demostración
     public static void main(String[] args) {
-        JSimpleCPU cpu = new JSimpleCPU();
+        demo(new JSimpleCPU());
+    }
+
+    // Demostraciones; Conformance las ejecuta también con otras memorias
+    static void demo(JSimpleCPU cpu) {
         Map<Integer, Integer> initialMemory = new HashMap<>();
         // Programa de ejemplo: Cargar 10 en el acumulador, sumar 20, almacenar en dirección 0, detenerse
         int[] macroSuma = {
@@ -519,7 +235,7 @@ public class JSimpleCPU {
         cpu.loadProgram(macroSuma, initialMemory);
         cpu.run();
         // Verificar el resultado almacenado en la memoria
-        System.out.println("Valor en la memoria en dirección 0: " + cpu.memory.get(0));
+        System.out.println("Valor en la memoria en dirección 0: " + cpu.getMemory(0));
 
         // Inicializar memoria con valores específicos
         initialMemory.put(10, 50);  // Valor en dirección 50
@@ -527,7 +243,7 @@ public class JSimpleCPU {
         cpu.loadProgram(macroResta, initialMemory);
         cpu.run();
         // Verificar el resultado almacenado en la memoria
-        System.out.println("Valor en la memoria en dirección 0: " + cpu.memory.get(0));
+        System.out.println("Valor en la memoria en dirección 0: " + cpu.getMemory(0));
 
         // Inicializar memoria con valores específicos
         initialMemory.put(10, 50);  // Valor en dirección 50
@@ -535,7 +251,7 @@ public class JSimpleCPU {
         cpu.loadProgram(macroPushPop, initialMemory);
         cpu.run();
         // Verificar el resultado almacenado en la memoria
-        System.out.println("Valor en la memoria en dirección 0: " + cpu.memory.get(0));
+        System.out.println("Valor en la memoria en dirección 0: " + cpu.getMemory(0));
 
         // Inicializar memoria con valores específicos
         initialMemory.put(10, 54);  // Valor en dirección 54
@@ -543,7 +259,7 @@ public class JSimpleCPU {
         cpu.loadProgram(macroPushPopNew, initialMemory);
         cpu.run();
         // Verificar el resultado almacenado en la memoria
-        System.out.println("Valor en la memoria en dirección 0: " + cpu.memory.get(0));
+        System.out.println("Valor en la memoria en dirección 0: " + cpu.getMemory(0));
 
         // Inicializar memoria con valores específicos
         initialMemory.put(10, 5);  // Valor en dirección 5
@@ -551,7 +267,7 @@ public class JSimpleCPU {
         cpu.loadProgram(programMultiply1);
         cpu.run();
         // Verificar el resultado almacenado en la memoria
-        System.out.println("Valor en la memoria en dirección 0: " + cpu.memory.get(0));
+        System.out.println("Valor en la memoria en dirección 0: " + cpu.getMemory(0));
     }
 
 }